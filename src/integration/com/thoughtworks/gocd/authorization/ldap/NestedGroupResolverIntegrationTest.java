@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.thoughtworks.gocd.authorization.ldap.RoleConfigMother.roleConfigWithNestedGroups;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ApplyLdifFiles(value = "users.ldif", clazz = BaseIntegrationTest.class)
+@CreateLdapServer(transports = {@CreateTransport(protocol = "LDAP", address = "localhost")})
+public class NestedGroupResolverIntegrationTest extends BaseIntegrationTest {
+    private static final String GROUP_SEARCH_BASE = "ou=Groups,ou=Enterprise,ou=Principal,ou=system";
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        addGroup("Engineering", "cn=PluginDevs,ou=PrivateGroups,ou=Enterprise,ou=Principal,ou=system");
+        addGroup("GoAdmins", "cn=Engineering," + GROUP_SEARCH_BASE);
+    }
+
+    @Test
+    public void shouldResolveGroupsNestedTwoLevelsDeepUsingMemberAttributeOfGroups() throws Exception {
+        final Ldap ldap = new Ldap(ldapConfiguration(new String[]{"ou=system"}));
+        final AuthConfig authConfig = new AuthConfig("nested-groups", ldapConfiguration(new String[]{"ou=system"}));
+        final RoleConfiguration roleConfiguration = roleConfigWithNestedGroups("admin", authConfig.getId(), "memberOf", "cn=GoAdmins," + GROUP_SEARCH_BASE, "ou=Enterprise,ou=Principal,ou=system").getRoleConfiguration();
+
+        assertThat(new NestedGroupResolver().isMember(user("uid=dthorud,ou=Employees,ou=Enterprise,ou=Principal,ou=system"), ldap, authConfig, roleConfiguration)).isTrue();
+        assertThat(new NestedGroupResolver().isMember(user("uid=bford,ou=Employees,ou=Enterprise,ou=Principal,ou=system"), ldap, authConfig, roleConfiguration)).isFalse();
+    }
+
+    private void addGroup(String cn, String member) throws Exception {
+        getService().getAdminSession().add(new DefaultEntry(getService().getSchemaManager(), "cn=" + cn + "," + GROUP_SEARCH_BASE,
+                "objectClass: top",
+                "objectClass: groupOfNames",
+                "cn: " + cn,
+                "member: " + member));
+    }
+
+    private User user(String dn) throws Exception {
+        return new User(dn, dn, null, new DefaultEntry(dn));
+    }
+}
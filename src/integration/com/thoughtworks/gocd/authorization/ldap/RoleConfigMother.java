@@ -24,7 +24,7 @@ import java.util.Map;
 
 public class RoleConfigMother {
 
-    private static RoleConfig roleConfig(String roleName, String authConfigId, String attributeName, String attributeValue, String groupMembershipFilter, String groupMembershipSearchBase) {
+    private static RoleConfig roleConfig(String roleName, String authConfigId, String attributeName, String attributeValue, String groupMembershipFilter, String groupMembershipSearchBase, boolean resolveNestedGroups) {
 
         Map<String, Object> roleConfig = new HashMap<>();
         roleConfig.put("name", roleName);
@@ -35,6 +35,7 @@ public class RoleConfigMother {
         configuration.put("GroupIdentifiers", attributeValue);
         configuration.put("GroupMembershipFilter", groupMembershipFilter);
         configuration.put("GroupSearchBases", groupMembershipSearchBase);
+        configuration.put("ResolveNestedGroups", String.valueOf(resolveNestedGroups));
 
         roleConfig.put("configuration", configuration);
 
@@ -42,11 +43,15 @@ public class RoleConfigMother {
     }
 
     public static RoleConfig roleConfigWithAttribute(String roleName, String authConfigId, String attributeName, String attributeValue) {
-        return roleConfig(roleName, authConfigId, attributeName, attributeValue, null, null);
+        return roleConfig(roleName, authConfigId, attributeName, attributeValue, null, null, false);
     }
 
     public static RoleConfig roleConfigWithGroupMembershipFilter(String roleName, String authConfigId, String groupMembershipFilter, String groupMembershipSearchBase) {
-        return roleConfig(roleName, authConfigId, null, null, groupMembershipFilter, groupMembershipSearchBase);
+        return roleConfig(roleName, authConfigId, null, null, groupMembershipFilter, groupMembershipSearchBase, false);
+    }
+
+    public static RoleConfig roleConfigWithNestedGroups(String roleName, String authConfigId, String attributeName, String groupIdentifiers, String groupSearchBase) {
+        return roleConfig(roleName, authConfigId, attributeName, groupIdentifiers, null, groupSearchBase, true);
     }
 
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.apacheds;
+
+import com.thoughtworks.gocd.authorization.ldap.BaseIntegrationTest;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValue;
+import org.apache.directory.api.ldap.model.entry.DefaultModification;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.ModificationOperation;
+import org.apache.directory.api.ldap.model.message.controls.PersistentSearch;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ApplyLdifFiles(value = "users.ldif", clazz = BaseIntegrationTest.class)
+@CreateLdapServer(transports = {@CreateTransport(protocol = "LDAP", address = "localhost")})
+public class ChangeTrackerTest extends BaseIntegrationTest {
+    private final CountDownLatch tracking = new CountDownLatch(1);
+    private final BlockingQueue<Entry> changes = new LinkedBlockingQueue<>();
+    private final ChangeTracker.Listener listener = new ChangeTracker.Listener() {
+        @Override
+        public void entryChanged(Entry entry) {
+            changes.add(entry);
+        }
+
+        @Override
+        public void changesMissed() {
+            tracking.countDown();
+        }
+    };
+
+    @Test
+    public void shouldReportChangedEntries() throws Exception {
+        final Dn bford = new Dn("uid=bford,ou=Employees,ou=Enterprise,ou=Principal,ou=system");
+        final ChangeTracker changeTracker = changeTracker("ou=Principal,ou=system").start();
+
+        try {
+            assertThat(tracking.await(10, SECONDS)).isTrue();
+
+            Entry changed = null;
+            for (int attempt = 0; attempt < 10 && changed == null; attempt++) {
+                getService().getAdminSession().modify(bford, new DefaultModification(ModificationOperation.REPLACE_ATTRIBUTE, "displayName", "Robert Ford " + attempt));
+                changed = changes.poll(1, SECONDS);
+            }
+
+            assertThat(changed).isNotNull();
+            assertThat(changed.getDn().getName()).isEqualTo(bford.getName());
+            assertThat(changed.hasObjectClass("inetOrgPerson")).isTrue();
+        } finally {
+            changeTracker.stop();
+        }
+    }
+
+    @Test
+    public void shouldFallBackToPersistentSearchWhenServerRefusesContentSynchronization() throws Exception {
+        try (LdapConnection connection = new Ldap(ldapConfiguration(new String[]{"ou=system"})).openConnection()) {
+            final Entry rootDse = connection.getRootDse("supportedControl");
+            assertThat(rootDse.get("supportedControl").contains(SyncRequestValue.OID)).isTrue();
+            assertThat(rootDse.get("supportedControl").contains(PersistentSearch.OID)).isTrue();
+        }
+
+        final Dn dthorud = new Dn("uid=dthorud,ou=Employees,ou=Enterprise,ou=Principal,ou=system");
+        final Dn renamed = new Dn("uid=dthorud2,ou=Employees,ou=Enterprise,ou=Principal,ou=system");
+        final ChangeTracker changeTracker = changeTracker("ou=Principal,ou=system").start();
+
+        try {
+            awaitTracking(dthorud);
+
+            getService().getAdminSession().rename(dthorud, new Rdn("uid=dthorud2"), true);
+
+            assertThat(changes.poll(10, SECONDS).getDn().getName()).isEqualToIgnoringCase(renamed.getName());
+            assertThat(changes.poll(10, SECONDS).getDn().getName()).isEqualToIgnoringCase(dthorud.getName());
+        } finally {
+            changeTracker.stop();
+        }
+    }
+
+    @Test
+    public void shouldCloseConnectionWhenStopped() throws Exception {
+        final int sessions = sessions();
+        final ChangeTracker changeTracker = changeTracker("ou=Principal,ou=system").start();
+        assertThat(tracking.await(10, SECONDS)).isTrue();
+
+        changeTracker.stop();
+
+        awaitSessions(sessions);
+    }
+
+    @Test
+    public void shouldCloseConnectionOpenedWhileStopping() throws Exception {
+        final int sessions = sessions();
+
+        for (int i = 0; i < 10; i++) {
+            changeTracker("ou=Principal,ou=system").start().stop();
+        }
+
+        awaitSessions(sessions);
+    }
+
+    private ChangeTracker changeTracker(String base) {
+        return new ChangeTracker(new Ldap(ldapConfiguration(new String[]{"ou=system"})), base, listener);
+    }
+
+    /*
+     * The tracker reports that changes may have been missed as soon as it sent its search, which the server may not
+     * have registered yet, so entries are modified until a change comes through.
+     */
+    private void awaitTracking(Dn dn) throws Exception {
+        assertThat(tracking.await(10, SECONDS)).isTrue();
+
+        Entry changed = null;
+        for (int attempt = 0; attempt < 10 && changed == null; attempt++) {
+            getService().getAdminSession().modify(dn, new DefaultModification(ModificationOperation.REPLACE_ATTRIBUTE, "displayName", "Change " + attempt));
+            changed = changes.poll(1, SECONDS);
+        }
+        assertThat(changed).isNotNull();
+        assertThat(changed.getDn().getName()).isEqualToIgnoringCase(dn.getName());
+        changes.clear();
+    }
+
+    private int sessions() {
+        return ldapServer.getLdapSessionManager().getSessions().length;
+    }
+
+    private void awaitSessions(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && sessions() != expected; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(sessions()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.ChangeTracker;
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.cache.AuthenticationCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.GroupGraphCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.RoleCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UnknownUserCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UserCache;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+
+/**
+ * Runs a {@link ChangeTracker} for every auth config with a change tracking base, so that cached users, roles and
+ * group graph edges are dropped as soon as the server reports a change instead of when they expire.
+ */
+public class ChangeTrackers {
+    private static final long IDLE_TIMEOUT_IN_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final Map<String, TrackedAuthConfig> TRACKED_AUTH_CONFIGS = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking the changes of the auth config unless already done, restarting the tracker when the auth config
+     * changed. Trackers of auth configs not used for an hour are stopped.
+     */
+    public void track(AuthConfig authConfig, Supplier<Ldap> ldapSupplier) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        final String changeTrackingBase = configuration == null ? null : configuration.getChangeTrackingBase();
+        if (changeTrackingBase == null) {
+            final TrackedAuthConfig previous = authConfig.getId() == null ? null : TRACKED_AUTH_CONFIGS.remove(authConfig.getId());
+            if (previous != null) {
+                previous.changeTracker.stop();
+            }
+            return;
+        }
+
+        final long now = System.nanoTime();
+        TRACKED_AUTH_CONFIGS.compute(authConfig.getId(), (id, existing) -> {
+            if (existing != null && existing.authConfig.equals(authConfig)) {
+                existing.lastAccessedNanos = now;
+                return existing;
+            }
+            if (existing != null) {
+                existing.changeTracker.stop();
+            }
+
+            LOG.info("[Change Tracker] Tracking changes below `{}` for auth_config: `{}`.", changeTrackingBase, id);
+            final CacheInvalidator cacheInvalidator = new CacheInvalidator(authConfig);
+            return new TrackedAuthConfig(authConfig, cacheInvalidator, new ChangeTracker(ldapSupplier.get(), changeTrackingBase, cacheInvalidator).start(), now);
+        });
+
+        TRACKED_AUTH_CONFIGS.values().removeIf(tracked -> {
+            if (now - tracked.lastAccessedNanos <= IDLE_TIMEOUT_IN_NANOS) {
+                return false;
+            }
+            LOG.info("[Change Tracker] Stopping unused change tracker for auth_config: `{}`.", tracked.authConfig.getId());
+            tracked.changeTracker.stop();
+            return true;
+        });
+    }
+
+    /**
+     * Starts tracking the changes of the auth config like {@link #track(AuthConfig, Supplier)}, and lets the tracker
+     * know the group search bases of the role configs, so that changes to groups are told apart from other changes.
+     */
+    public void track(AuthConfig authConfig, List<RoleConfig> roleConfigs, Supplier<Ldap> ldapSupplier) {
+        track(authConfig, ldapSupplier);
+
+        final TrackedAuthConfig tracked = authConfig.getId() == null ? null : TRACKED_AUTH_CONFIGS.get(authConfig.getId());
+        if (tracked != null) {
+            roleConfigs.forEach(roleConfig -> tracked.cacheInvalidator.addGroupSearchBases(roleConfig.getRoleConfiguration().getGroupSearchBases()));
+        }
+    }
+
+    private static class TrackedAuthConfig {
+        private final AuthConfig authConfig;
+        private final CacheInvalidator cacheInvalidator;
+        private final ChangeTracker changeTracker;
+        private volatile long lastAccessedNanos;
+
+        private TrackedAuthConfig(AuthConfig authConfig, CacheInvalidator cacheInvalidator, ChangeTracker changeTracker, long lastAccessedNanos) {
+            this.authConfig = authConfig;
+            this.cacheInvalidator = cacheInvalidator;
+            this.changeTracker = changeTracker;
+            this.lastAccessedNanos = lastAccessedNanos;
+        }
+    }
+
+    static class CacheInvalidator implements ChangeTracker.Listener {
+        private static final Set<String> GROUP_OBJECT_CLASSES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        static {
+            GROUP_OBJECT_CLASSES.addAll(List.of("group", "groupOfNames", "groupOfUniqueNames", "groupOfMembers", "groupOfEntries", "groupOfURLs", "posixGroup"));
+        }
+
+        private final AuthConfig authConfig;
+        private final Set<String> userSearchBases;
+        private final Set<String> groupSearchBases = ConcurrentHashMap.newKeySet();
+        private final UserCache userCache;
+        private final AuthenticationCache authenticationCache;
+        private final UnknownUserCache unknownUserCache;
+        private final RoleCache roleCache;
+        private final GroupGraphCache groupGraphCache;
+        private final GroupMembershipGraphs groupMembershipGraphs;
+
+        CacheInvalidator(AuthConfig authConfig) {
+            this(authConfig, new UserCache(), new AuthenticationCache(), new UnknownUserCache(), new RoleCache(), new GroupGraphCache(), new GroupMembershipGraphs());
+        }
+
+        CacheInvalidator(AuthConfig authConfig, UserCache userCache, AuthenticationCache authenticationCache, UnknownUserCache unknownUserCache, RoleCache roleCache, GroupGraphCache groupGraphCache, GroupMembershipGraphs groupMembershipGraphs) {
+            this.authConfig = authConfig;
+            this.userSearchBases = authConfig.getConfiguration() == null ? Set.of() : normalizedDns(authConfig.getConfiguration().getSearchBases());
+            this.userCache = userCache;
+            this.authenticationCache = authenticationCache;
+            this.unknownUserCache = unknownUserCache;
+            this.roleCache = roleCache;
+            this.groupGraphCache = groupGraphCache;
+            this.groupMembershipGraphs = groupMembershipGraphs;
+        }
+
+        void addGroupSearchBases(Collection<String> searchBases) {
+            groupSearchBases.addAll(normalizedDns(searchBases));
+        }
+
+        /*
+         * A change to a cached user only affects that user. A change to a group, as told by its object class or by being
+         * below a group search base, can affect the roles of every user, so everything derived from group memberships is
+         * dropped. A new entry below a user search base may be a new user, so the unknown users are forgotten. Changes to
+         * any other entries do not affect the caches.
+         */
+        @Override
+        public void entryChanged(Entry entry) {
+            final Dn dn = entry.getDn();
+            final boolean userEntryChanged = userCache.invalidateEntry(authConfig, dn)
+                    | authenticationCache.invalidateEntry(authConfig, dn)
+                    | roleCache.invalidateUser(authConfig, dn);
+
+            if (userEntryChanged) {
+                LOG.debug("[Change Tracker] User `{}` changed, invalidated its cached entries for auth_config: `{}`.", dn.getName(), authConfig.getId());
+                return;
+            }
+
+            if (isBelowAny(dn, userSearchBases)) {
+                LOG.debug("[Change Tracker] Entry `{}` changed, invalidating unknown users for auth_config: `{}`.", dn.getName(), authConfig.getId());
+                unknownUserCache.invalidateAll(authConfig);
+            }
+
+            if (isGroup(entry)) {
+                LOG.debug("[Change Tracker] Group `{}` changed, invalidating cached roles for auth_config: `{}`.", dn.getName(), authConfig.getId());
+                invalidateGroupMemberships();
+            }
+        }
+
+        @Override
+        public void changesMissed() {
+            LOG.info("[Change Tracker] Changes may have been missed, invalidating all cached entries for auth_config: `{}`.", authConfig.getId());
+            userCache.invalidateAll(authConfig);
+            authenticationCache.invalidateAll(authConfig);
+            unknownUserCache.invalidateAll(authConfig);
+            invalidateGroupMemberships();
+        }
+
+        private void invalidateGroupMemberships() {
+            roleCache.invalidateAll(authConfig);
+            groupGraphCache.invalidateAll(authConfig);
+            groupMembershipGraphs.refreshAfterChange(authConfig);
+        }
+
+        private boolean isGroup(Entry entry) {
+            if (isBelowAny(entry.getDn(), groupSearchBases)) {
+                return true;
+            }
+
+            final Attribute objectClasses = entry.get(SchemaConstants.OBJECT_CLASS_AT);
+            if (objectClasses != null) {
+                for (Value objectClass : objectClasses) {
+                    if (GROUP_OBJECT_CLASSES.contains(objectClass.getString())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean isBelowAny(Dn dn, Set<String> normalizedBases) {
+            final String normalizedDn = dn.getNormName().toLowerCase(Locale.ROOT);
+            return normalizedBases.stream().anyMatch(base -> base.isEmpty() || normalizedDn.equals(base) || normalizedDn.endsWith("," + base));
+        }
+
+        private static Set<String> normalizedDns(Collection<String> names) {
+            final Set<String> dns = new HashSet<>();
+            for (String name : names) {
+                try {
+                    dns.add(new Dn(name).getNormName().toLowerCase(Locale.ROOT));
+                } catch (LdapInvalidDnException e) {
+                    LOG.debug("[Change Tracker] Ignoring invalid search base `{}`.", name);
+                }
+            }
+            return dns;
+        }
+    }
+}
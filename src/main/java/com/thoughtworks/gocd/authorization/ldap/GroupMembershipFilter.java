@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.filter.AndNode;
+import org.apache.directory.api.ldap.model.filter.BranchNode;
+import org.apache.directory.api.ldap.model.filter.EqualityNode;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.apache.directory.api.ldap.model.filter.LeafNode;
+import org.apache.directory.api.ldap.model.filter.NotNode;
+import org.apache.directory.api.ldap.model.filter.OrNode;
+import org.apache.directory.api.ldap.model.filter.PresenceNode;
+
+import java.text.ParseException;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A group membership filter which can also be evaluated against a search result on the client side.
+ * Only equality, presence, and, or and not assertions are supported, and equality assertions only on attributes
+ * with a known {@link MatchingRule}, so the client never matches a value the server would not.
+ */
+class GroupMembershipFilter {
+    private final String filter;
+    private final ExprNode node;
+    private final Set<String> attributes;
+
+    private GroupMembershipFilter(String filter, ExprNode node, Set<String> attributes) {
+        this.filter = filter;
+        this.node = node;
+        this.attributes = attributes;
+    }
+
+    static GroupMembershipFilter parse(String filter) {
+        if (filter == null) {
+            return null;
+        }
+
+        try {
+            final ExprNode node = FilterParser.parse(filter);
+            final Set<String> attributes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            return collectAttributes(node, attributes) ? new GroupMembershipFilter(filter, node, attributes) : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    String getFilter() {
+        return filter;
+    }
+
+    Set<String> getAttributes() {
+        return attributes;
+    }
+
+    boolean matches(Entry entry) {
+        return matches(node, entry);
+    }
+
+    /**
+     * Whether the filter matches entries holding none of its attributes, like {@code (!(member=...))} does. Such
+     * entries are not part of a {@link GroupMembershipGraph}, so the graph cannot evaluate these filters.
+     */
+    boolean matchesEntriesWithoutAttributes() {
+        return matches(node, new DefaultEntry());
+    }
+
+    boolean matchesAny(GroupMembershipGraph graph) {
+        return !matchingGroups(node, graph).isEmpty();
+    }
+
+    private static boolean collectAttributes(ExprNode node, Set<String> attributes) {
+        if (node instanceof AndNode || node instanceof OrNode || node instanceof NotNode) {
+            for (ExprNode child : ((BranchNode) node).getChildren()) {
+                if (!collectAttributes(child, attributes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (node instanceof EqualityNode && MatchingRule.of(((EqualityNode<?>) node).getAttribute()) == null) {
+            return false;
+        }
+
+        if (node instanceof EqualityNode || node instanceof PresenceNode) {
+            attributes.add(((LeafNode) node).getAttribute());
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean matches(ExprNode node, Entry entry) {
+        if (node instanceof AndNode) {
+            return ((AndNode) node).getChildren().stream().allMatch(child -> matches(child, entry));
+        }
+
+        if (node instanceof OrNode) {
+            return ((OrNode) node).getChildren().stream().anyMatch(child -> matches(child, entry));
+        }
+
+        if (node instanceof NotNode) {
+            return !matches(((NotNode) node).getFirstChild(), entry);
+        }
+
+        if (node instanceof PresenceNode) {
+            return entry.containsAttribute(((PresenceNode) node).getAttribute());
+        }
+
+        final EqualityNode<?> equalityNode = (EqualityNode<?>) node;
+        final Attribute attribute = entry.get(equalityNode.getAttribute());
+        if (attribute == null) {
+            return false;
+        }
+
+        final MatchingRule rule = MatchingRule.of(equalityNode.getAttribute());
+        final String expected = equalityNode.getValue().getString();
+        for (Value value : attribute) {
+            if (value.isHumanReadable() && rule.matches(expected, value.getString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BitSet matchingGroups(ExprNode node, GroupMembershipGraph graph) {
+        if (node instanceof AndNode) {
+            final BitSet groups = graph.allGroups();
+            ((AndNode) node).getChildren().forEach(child -> groups.and(matchingGroups(child, graph)));
+            return groups;
+        }
+
+        if (node instanceof OrNode) {
+            final BitSet groups = new BitSet();
+            ((OrNode) node).getChildren().forEach(child -> groups.or(matchingGroups(child, graph)));
+            return groups;
+        }
+
+        if (node instanceof NotNode) {
+            final BitSet groups = graph.allGroups();
+            groups.andNot(matchingGroups(((NotNode) node).getFirstChild(), graph));
+            return groups;
+        }
+
+        if (node instanceof PresenceNode) {
+            return graph.groupsWith(((PresenceNode) node).getAttribute());
+        }
+
+        final EqualityNode<?> equalityNode = (EqualityNode<?>) node;
+        return graph.groupsWith(equalityNode.getAttribute(), equalityNode.getValue().getString());
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An immutable snapshot of the groups below a group search base and the values of their membership attributes.
+ * Values are normalized with the {@link MatchingRule} of their attribute and interned to int ids, and for every attribute the groups holding a value are kept in a compressed
+ * adjacency array indexed by value id, so finding the groups of a member is a pair of array reads.
+ */
+class GroupMembershipGraph {
+    private final String[] groups;
+    private final Set<String> attributes;
+    private final Map<String, Integer> valueIds;
+    private final Map<String, Adjacency> adjacencyByAttribute;
+    private final long createdAtNanos;
+
+    private GroupMembershipGraph(String[] groups, Set<String> attributes, Map<String, Integer> valueIds, Map<String, Adjacency> adjacencyByAttribute, long createdAtNanos) {
+        this.groups = groups;
+        this.attributes = attributes;
+        this.valueIds = valueIds;
+        this.adjacencyByAttribute = adjacencyByAttribute;
+        this.createdAtNanos = createdAtNanos;
+    }
+
+    static Builder builder(Set<String> attributes) {
+        return new Builder(attributes);
+    }
+
+    int size() {
+        return groups.length;
+    }
+
+    String group(int id) {
+        return groups[id];
+    }
+
+    boolean hasAttributes(Set<String> attributes) {
+        return this.attributes.containsAll(attributes);
+    }
+
+    long ageInNanos() {
+        return System.nanoTime() - createdAtNanos;
+    }
+
+    BitSet allGroups() {
+        final BitSet allGroups = new BitSet(groups.length);
+        allGroups.set(0, groups.length);
+        return allGroups;
+    }
+
+    BitSet groupsWith(String attribute) {
+        final Adjacency adjacency = adjacencyByAttribute.get(attribute);
+        return adjacency == null ? new BitSet() : (BitSet) adjacency.groupsWithAttribute.clone();
+    }
+
+    BitSet groupsWith(String attribute, String value) {
+        final Adjacency adjacency = adjacencyByAttribute.get(attribute);
+        final Integer valueId = valueIds.get(normalize(attribute, value));
+        final BitSet groupsWithValue = new BitSet();
+        if (adjacency == null || valueId == null || valueId >= adjacency.offsets.length - 1) {
+            return groupsWithValue;
+        }
+
+        for (int i = adjacency.offsets[valueId]; i < adjacency.offsets[valueId + 1]; i++) {
+            groupsWithValue.set(adjacency.groups[i]);
+        }
+        return groupsWithValue;
+    }
+
+    /*
+     * Values of attributes without a known matching rule are kept as they are, so they only ever match exactly.
+     */
+    private static String normalize(String attribute, String value) {
+        final MatchingRule rule = MatchingRule.of(attribute);
+        return rule == null ? value : rule.normalize(value);
+    }
+
+    /*
+     * The groups holding each value, stored as one array of group ids where the groups of value id v are found
+     * between offsets[v] and offsets[v + 1].
+     */
+    private record Adjacency(int[] offsets, int[] groups, BitSet groupsWithAttribute) {
+    }
+
+    static class Builder {
+        private final Set<String> attributes;
+        private final List<String> groups = new ArrayList<>();
+        private final Map<String, Integer> valueIds = new HashMap<>();
+        private final Map<String, Edges> edgesByAttribute = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        private Builder(Set<String> attributes) {
+            this.attributes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            this.attributes.addAll(attributes);
+            this.attributes.forEach(attribute -> edgesByAttribute.put(attribute, new Edges()));
+        }
+
+        Builder add(Entry entry) {
+            final int groupId = groups.size();
+            groups.add(entry.getDn().getName());
+
+            edgesByAttribute.forEach((attributeName, edges) -> {
+                final Attribute attribute = entry.get(attributeName);
+                if (attribute == null) {
+                    return;
+                }
+
+                edges.groupsWithAttribute.set(groupId);
+                for (Value value : attribute) {
+                    if (value.isHumanReadable()) {
+                        edges.add(valueIds.computeIfAbsent(normalize(attributeName, value.getString()), key -> valueIds.size()), groupId);
+                    }
+                }
+            });
+            return this;
+        }
+
+        GroupMembershipGraph build() {
+            final Map<String, Adjacency> adjacencyByAttribute = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            edgesByAttribute.forEach((attribute, edges) -> adjacencyByAttribute.put(attribute, edges.toAdjacency(valueIds.size())));
+            return new GroupMembershipGraph(groups.toArray(new String[0]), Collections.unmodifiableSet(attributes), valueIds, adjacencyByAttribute, System.nanoTime());
+        }
+    }
+
+    private static class Edges {
+        private final BitSet groupsWithAttribute = new BitSet();
+        private int[] values = new int[16];
+        private int[] groups = new int[16];
+        private int size;
+
+        void add(int valueId, int groupId) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                groups = Arrays.copyOf(groups, size * 2);
+            }
+            values[size] = valueId;
+            groups[size] = groupId;
+            size++;
+        }
+
+        Adjacency toAdjacency(int valueCount) {
+            final int[] offsets = new int[valueCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[values[i] + 1]++;
+            }
+            for (int v = 0; v < valueCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            final int[] next = Arrays.copyOf(offsets, valueCount);
+            final int[] sortedGroups = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedGroups[next[values[i]]++] = groups[i];
+            }
+            return new Adjacency(offsets, sortedGroups, groupsWithAttribute);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+
+/**
+ * Keeps a {@link GroupMembershipGraph} of every group search base in use, rebuilt in the background by scanning the
+ * entries of the search base holding one of the attributes in use, so that group membership filters can be evaluated
+ * without searching the server. A rebuilt graph
+ * replaces the previous one at once; a failed rebuild keeps the previous graph until it is older than the
+ * configured staleness bound.
+ */
+public class GroupMembershipGraphs {
+    private static final int SCAN_PAGE_SIZE = 1000;
+    private static final int CHANGE_REFRESH_DELAY_IN_SECONDS = 5;
+    private static final long IDLE_TIMEOUT_IN_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "ldap-group-graph-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<GraphKey, Graph> GRAPHS = new ConcurrentHashMap<>();
+    private final LdapFactory ldapFactory;
+
+    public GroupMembershipGraphs() {
+        this(new LdapFactory());
+    }
+
+    GroupMembershipGraphs(LdapFactory ldapFactory) {
+        this.ldapFactory = ldapFactory;
+    }
+
+    /**
+     * Returns the graph of the search base if it is recent enough and knows all given attributes, {@code null}
+     * otherwise. Requesting a graph registers the search base and the attributes for the next rebuild.
+     */
+    GroupMembershipGraph graphFor(AuthConfig authConfig, String searchBase, Set<String> attributes) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        if (configuration == null || configuration.getGroupMembershipGraphRefreshInterval() <= 0) {
+            return null;
+        }
+
+        final GraphKey key = new GraphKey(authConfig.getId(), searchBase);
+        final Graph graph = GRAPHS.compute(key, (k, existing) -> {
+            if (existing != null && existing.authConfig.equals(authConfig)) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.stop();
+            }
+            return new Graph(key, authConfig, ldapFactory).start(configuration.getGroupMembershipGraphRefreshInterval());
+        });
+        return graph.get(attributes, configuration.getGroupMembershipGraphMaxStaleness());
+    }
+
+    /**
+     * Rebuilds the graphs of the auth config shortly, so that a burst of changes leads to a single rebuild.
+     */
+    void refreshAfterChange(AuthConfig authConfig) {
+        GRAPHS.forEach((key, graph) -> {
+            if (key.authConfigId().equals(authConfig.getId())) {
+                graph.refreshSoon();
+            }
+        });
+    }
+
+    private record GraphKey(String authConfigId, String searchBase) {
+    }
+
+    private static class Graph {
+        private final GraphKey key;
+        private final AuthConfig authConfig;
+        private final LdapFactory ldapFactory;
+        private final Set<String> attributes = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+        private volatile GroupMembershipGraph snapshot;
+        private volatile long lastAccessedNanos = System.nanoTime();
+        private ScheduledFuture<?> refresh;
+
+        private Graph(GraphKey key, AuthConfig authConfig, LdapFactory ldapFactory) {
+            this.key = key;
+            this.authConfig = authConfig;
+            this.ldapFactory = ldapFactory;
+        }
+
+        private Graph start(int refreshIntervalInSeconds) {
+            refresh = SCHEDULER.scheduleWithFixedDelay(this::refresh, refreshIntervalInSeconds, refreshIntervalInSeconds, TimeUnit.SECONDS);
+            return this;
+        }
+
+        private void stop() {
+            refresh.cancel(false);
+        }
+
+        private void refreshSoon() {
+            if (refreshScheduled.compareAndSet(false, true)) {
+                SCHEDULER.schedule(() -> {
+                    refreshScheduled.set(false);
+                    refresh();
+                }, CHANGE_REFRESH_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+
+        private GroupMembershipGraph get(Set<String> requiredAttributes, int maxStalenessInSeconds) {
+            lastAccessedNanos = System.nanoTime();
+            if (attributes.addAll(requiredAttributes.stream().map(attribute -> attribute.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()))) {
+                SCHEDULER.execute(this::refresh);
+            }
+
+            final GroupMembershipGraph current = snapshot;
+            if (current == null || !current.hasAttributes(requiredAttributes) || current.ageInNanos() > TimeUnit.SECONDS.toNanos(maxStalenessInSeconds)) {
+                return null;
+            }
+            return current;
+        }
+
+        private void refresh() {
+            if (System.nanoTime() - lastAccessedNanos > IDLE_TIMEOUT_IN_NANOS) {
+                LOG.info("[Group Graph] Discarding unused group membership graph of group_search_base: `{}` for auth_config: `{}`.", key.searchBase(), key.authConfigId());
+                stop();
+                GRAPHS.remove(key, this);
+                return;
+            }
+
+            final Set<String> attributesToScan = new TreeSet<>(attributes);
+            final GroupMembershipGraph.Builder builder = GroupMembershipGraph.builder(attributesToScan);
+            try {
+                final LdapConfiguration configuration = authConfig.getConfiguration();
+                final int pageSize = configuration.getSearchPageSize() > 0 ? configuration.getSearchPageSize() : SCAN_PAGE_SIZE;
+                // The factory may have closed and replaced the Ldap since the last refresh
+                ldapFactory.ldapForAuthConfig(authConfig).scanGroups(key.searchBase(), scanFilter(attributesToScan), attributesToScan.toArray(new String[0]), entry -> entry, pageSize, builder::add);
+
+                snapshot = builder.build();
+                LOG.debug("[Group Graph] Refreshed group membership graph of group_search_base: `{}` for auth_config: `{}` with {} entries.", key.searchBase(), key.authConfigId(), snapshot.size());
+            } catch (Exception e) {
+                LOG.error("[Group Graph] Failed to refresh group membership graph of group_search_base: `{}` for auth_config: `{}`, keeping the previous one.", key.searchBase(), key.authConfigId(), e);
+            }
+        }
+
+        /*
+         * Only entries holding one of the attributes can match an equality or presence assertion, the graph does not
+         * need any other entry of the search base.
+         */
+        private static String scanFilter(Set<String> attributes) {
+            final String presence = attributes.stream().map(attribute -> "(" + attribute + "=*)").collect(Collectors.joining());
+            return attributes.size() == 1 ? presence : "(|" + presence + ")";
+        }
+    }
+}
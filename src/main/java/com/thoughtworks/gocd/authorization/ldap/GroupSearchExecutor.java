@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static com.thoughtworks.gocd.authorization.ldap.utils.Util.newSearchExecutor;
+
+/**
+ * Evaluates group searches concurrently on a plugin owned executor. The number of searches running for a single
+ * request is limited by the requested parallelism.
+ */
+public class GroupSearchExecutor {
+    private static final ExecutorService EXECUTOR = newSearchExecutor("ldap-group-search-", 32);
+
+    public <T> List<T> filter(List<T> items, Predicate<T> predicate, int parallelism, int deadlineInSeconds) {
+        if (parallelism <= 1 || items.size() <= 1) {
+            return items.stream().filter(predicate).collect(Collectors.toList());
+        }
+
+        final Queue<T> pending = new ConcurrentLinkedQueue<>(items);
+        final Set<T> matched = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean expired = new AtomicBoolean();
+
+        final CompletableFuture<?>[] workers = IntStream.range(0, Math.min(parallelism, items.size()))
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    T item;
+                    while (!expired.get() && (item = pending.poll()) != null) {
+                        if (predicate.test(item)) {
+                            matched.add(item);
+                        }
+                    }
+                }, EXECUTOR))
+                .toArray(CompletableFuture[]::new);
+
+        try {
+            if (deadlineInSeconds > 0) {
+                CompletableFuture.allOf(workers).get(deadlineInSeconds, TimeUnit.SECONDS);
+            } else {
+                CompletableFuture.allOf(workers).get();
+            }
+        } catch (TimeoutException e) {
+            expired.set(true);
+            LOG.warn("[Authenticate] Group searches did not finish within {} seconds, {} search(es) were skipped.", deadlineInSeconds, pending.size());
+        } catch (InterruptedException e) {
+            expired.set(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error("[Authenticate] Error evaluating group searches.", e.getCause());
+        }
+
+        return items.stream().filter(matched::contains).collect(Collectors.toList());
+    }
+}
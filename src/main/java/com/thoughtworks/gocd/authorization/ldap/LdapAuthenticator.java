@@ -18,55 +18,163 @@ package com.thoughtworks.gocd.authorization.ldap;
 
 import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.cache.AuthenticationCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UnknownUserCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UserCache;
+import com.thoughtworks.gocd.authorization.ldap.exception.UserNotFoundException;
+import com.thoughtworks.gocd.authorization.ldap.mapper.UserAttributes;
 import com.thoughtworks.gocd.authorization.ldap.model.*;
+import com.thoughtworks.gocd.authorization.ldap.utils.SingleFlight;
 import org.apache.directory.api.ldap.model.entry.Entry;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static com.thoughtworks.gocd.authorization.ldap.utils.Util.newSearchExecutor;
 
 public class LdapAuthenticator {
+    private static final ExecutorService EXECUTOR = newSearchExecutor("ldap-authenticate-", 32);
+    private static final SingleFlight<UserLookup, AuthenticationResponse> USER_LOOKUPS = new SingleFlight<>();
 
     private final LdapFactory ldapFactory;
+    private final AuthenticationCache authenticationCache;
+    private final UserCache userCache;
+    private final UnknownUserCache unknownUserCache;
+    private final ChangeTrackers changeTrackers;
 
     public LdapAuthenticator() {
-        this(new LdapFactory());
+        this(new LdapFactory(), new AuthenticationCache(), new UserCache());
     }
 
     protected LdapAuthenticator(LdapFactory ldapFactory) {
+        this(ldapFactory, new AuthenticationCache(), new UserCache());
+    }
+
+    protected LdapAuthenticator(LdapFactory ldapFactory, AuthenticationCache authenticationCache, UserCache userCache) {
+        this(ldapFactory, authenticationCache, userCache, new ChangeTrackers());
+    }
+
+    protected LdapAuthenticator(LdapFactory ldapFactory, AuthenticationCache authenticationCache, UserCache userCache, ChangeTrackers changeTrackers) {
+        this(ldapFactory, authenticationCache, userCache, new UnknownUserCache(), changeTrackers);
+    }
+
+    protected LdapAuthenticator(LdapFactory ldapFactory, AuthenticationCache authenticationCache, UserCache userCache, UnknownUserCache unknownUserCache, ChangeTrackers changeTrackers) {
         this.ldapFactory = ldapFactory;
+        this.authenticationCache = authenticationCache;
+        this.userCache = userCache;
+        this.unknownUserCache = unknownUserCache;
+        this.changeTrackers = changeTrackers;
     }
 
     public AuthenticationResponse authenticate(Credentials credentials, List<AuthConfig> authConfigs) {
-        for (AuthConfig authConfig : authConfigs) {
-            AuthenticationResponse authenticationResponse = authenticateWithAuthConfig(credentials, authConfig);
-            if (authenticationResponse != null)
-                return authenticationResponse;
-        }
-        return null;
+        return authenticate(credentials, authConfigs, null);
+    }
+
+    public AuthenticationResponse authenticate(Credentials credentials, List<AuthConfig> authConfigs, List<RoleConfig> roleConfigs) {
+        return firstResponse(authConfigs, authConfig -> authenticateWithAuthConfig(credentials, authConfig, roleConfigs));
     }
 
     public AuthenticationResponse searchUser(String username, List<AuthConfig> authConfigs) {
+        return firstResponse(authConfigs, authConfig -> searchUserWithAuthConfig(username, authConfig));
+    }
+
+    /*
+     * Tries the auth configs in order and returns the first response. Auth configs with parallel authentication enabled
+     * are started right away, so that they are already done by the time their turn comes. Whatever is still running
+     * once a response is found is cancelled.
+     */
+    private AuthenticationResponse firstResponse(List<AuthConfig> authConfigs, Function<AuthConfig, AuthenticationResponse> attempt) {
+        final List<Future<AuthenticationResponse>> futures = new ArrayList<>();
         for (AuthConfig authConfig : authConfigs) {
-            AuthenticationResponse authenticationResponse = searchUserWithAuthConfig(username, authConfig);
-            if (authenticationResponse != null)
-                return authenticationResponse;
+            futures.add(isParallelAuthenticationEnabled(authConfig) ? EXECUTOR.submit(() -> attempt.apply(authConfig)) : null);
+        }
+
+        try {
+            for (int i = 0; i < authConfigs.size(); i++) {
+                final Future<AuthenticationResponse> future = futures.get(i);
+                try {
+                    final AuthenticationResponse authenticationResponse = future == null ? attempt.apply(authConfigs.get(i)) : future.get();
+                    if (authenticationResponse != null)
+                        return authenticationResponse;
+                } catch (ExecutionException e) {
+                    LOG.error("[Authenticate] Unexpected error while authenticating user using auth_config: {}.", authConfigs.get(i).getId(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            futures.stream().filter(Objects::nonNull).forEach(future -> future.cancel(true));
         }
         return null;
     }
 
+    private boolean isParallelAuthenticationEnabled(AuthConfig authConfig) {
+        return authConfig.getConfiguration() != null && authConfig.getConfiguration().parallelAuthentication();
+    }
+
     public AuthenticationResponse searchUserWithAuthConfig(String username, AuthConfig authConfig) {
-        return performWithLdap(new Credentials(username, null), authConfig, ldap -> ldap.searchUser(username, e -> e));
+        return searchUserWithAuthConfig(username, authConfig, null);
     }
 
-    private AuthenticationResponse authenticateWithAuthConfig(Credentials credentials, AuthConfig authConfig) {
-        return performWithLdap(credentials, authConfig, ldap -> ldap.authenticate(credentials.getUsername(), credentials.getPassword(), e -> e));
+    /**
+     * Looks up a user requesting only the attributes needed to map the user and to resolve the given role configs.
+     * All attributes are requested when {@code roleConfigs} is {@code null}. Concurrent lookups of the same user share
+     * a single search, and users recently found not to exist are not searched for again.
+     */
+    public AuthenticationResponse searchUserWithAuthConfig(String username, AuthConfig authConfig, List<RoleConfig> roleConfigs) {
+        changeTrackers.track(authConfig, () -> ldapFactory.ldapForAuthConfig(authConfig));
+        final String[] attributes = UserAttributes.forAuthConfig(authConfig, roleConfigs);
+        final User cachedUser = userCache.getIfPresent(authConfig, username, attributes);
+        if (cachedUser != null) {
+            return new AuthenticationResponse(cachedUser, authConfig);
+        }
+        if (unknownUserCache.isUnknown(authConfig, username)) {
+            return null;
+        }
+
+        return USER_LOOKUPS.execute(new UserLookup(authConfig, username, List.of(attributes)), () -> {
+            final AuthenticationResponse authenticationResponse = performWithLdap(new Credentials(username, null), authConfig, ldap -> ldap.searchUser(username, attributes, e -> e));
+            if (authenticationResponse != null) {
+                userCache.put(authConfig, username, attributes, authenticationResponse.getUser());
+            }
+            return authenticationResponse;
+        });
+    }
+
+    private AuthenticationResponse authenticateWithAuthConfig(Credentials credentials, AuthConfig authConfig, List<RoleConfig> roleConfigs) {
+        changeTrackers.track(authConfig, () -> ldapFactory.ldapForAuthConfig(authConfig));
+        if (unknownUserCache.isUnknown(authConfig, credentials.getUsername())) {
+            return null;
+        }
+
+        final String[] attributes = UserAttributes.forAuthConfig(authConfig, roleConfigs);
+        final AuthenticationResponse authenticationResponse = performWithLdap(credentials, authConfig, ldap -> {
+            final Entry cachedEntry = authenticationCache.getIfPresent(authConfig, credentials, attributes);
+            if (cachedEntry != null) {
+                return cachedEntry;
+            }
+
+            final Entry entry = ldap.authenticate(credentials.getUsername(), credentials.getPassword(), attributes, e -> e);
+            authenticationCache.put(authConfig, credentials, attributes, entry);
+            return entry;
+        });
+
+        if (authenticationResponse != null) {
+            userCache.put(authConfig, credentials.getUsername(), attributes, authenticationResponse.getUser());
+        }
+        return authenticationResponse;
     }
 
     private AuthenticationResponse performWithLdap(Credentials credentials, AuthConfig authConfig, ThrowingFunction<Ldap, Entry> callback) {
         final LdapConfiguration configuration = authConfig.getConfiguration();
         final String authConfigId = authConfig.getId();
-        final Ldap ldap = ldapFactory.ldapForConfiguration(configuration);
+        final Ldap ldap = ldapFactory.ldapForAuthConfig(authConfig);
 
         try {
             LOG.info("[Authenticate] Authenticating User: {} using auth_config: {}", credentials.getUsername(), authConfigId);
@@ -74,9 +182,15 @@ public class LdapAuthenticator {
             final User user = configuration.getUserMapper().map(entry);
 
             return new AuthenticationResponse(user, authConfig);
+        } catch (UserNotFoundException e) {
+            LOG.info("[Authenticate] {}", e.getMessage());
+            unknownUserCache.markUnknown(authConfig, credentials.getUsername());
         } catch (Exception e) {
             LOG.error("[Authenticate] Failed to authenticate user `{}` using auth_config: {}. ", credentials.getUsername(), authConfigId, e);
         }
         return null;
     }
+
+    private record UserLookup(AuthConfig authConfig, String username, List<String> attributes) {
+    }
 }
@@ -17,35 +17,79 @@
 package com.thoughtworks.gocd.authorization.ldap;
 
 import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap.GroupSearchResult;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.cache.RoleCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.RoleCache.ResolvedRoles;
 import com.thoughtworks.gocd.authorization.ldap.mapper.RoleMapper;
 import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
 import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
 import com.thoughtworks.gocd.authorization.ldap.model.User;
+import com.thoughtworks.gocd.authorization.ldap.utils.SingleFlight;
 import org.apache.directory.api.ldap.model.entry.Entry;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
 
 public class LdapAuthorizer {
+    private static final SingleFlight<RoleLookup, Set<String>> ROLE_LOOKUPS = new SingleFlight<>();
+
     private final LdapFactory ldapFactory;
     private final RoleMapper roleMapper;
     private final LdapSearchFilterBuilder builder;
+    private final RoleCache roleCache;
+    private final GroupSearchExecutor groupSearchExecutor;
+    private final NestedGroupResolver nestedGroupResolver;
+    private final GroupMembershipGraphs groupMembershipGraphs;
+    private final ChangeTrackers changeTrackers;
 
     public LdapAuthorizer() {
-        this(new LdapFactory(), new RoleMapper(), new LdapSearchFilterBuilder());
+        this(new LdapFactory(), new RoleMapper(), new LdapSearchFilterBuilder(), new RoleCache());
     }
 
     protected LdapAuthorizer(LdapFactory ldapFactory, RoleMapper roleMapper, LdapSearchFilterBuilder builder) {
+        this(ldapFactory, roleMapper, builder, new RoleCache());
+    }
+
+    protected LdapAuthorizer(LdapFactory ldapFactory, RoleMapper roleMapper, LdapSearchFilterBuilder builder, RoleCache roleCache) {
+        this(ldapFactory, roleMapper, builder, roleCache, new GroupSearchExecutor());
+    }
+
+    protected LdapAuthorizer(LdapFactory ldapFactory, RoleMapper roleMapper, LdapSearchFilterBuilder builder, RoleCache roleCache, GroupSearchExecutor groupSearchExecutor) {
+        this(ldapFactory, roleMapper, builder, roleCache, groupSearchExecutor, new NestedGroupResolver());
+    }
+
+    protected LdapAuthorizer(LdapFactory ldapFactory, RoleMapper roleMapper, LdapSearchFilterBuilder builder, RoleCache roleCache, GroupSearchExecutor groupSearchExecutor, NestedGroupResolver nestedGroupResolver) {
+        this(ldapFactory, roleMapper, builder, roleCache, groupSearchExecutor, nestedGroupResolver, new GroupMembershipGraphs(ldapFactory));
+    }
+
+    protected LdapAuthorizer(LdapFactory ldapFactory, RoleMapper roleMapper, LdapSearchFilterBuilder builder, RoleCache roleCache, GroupSearchExecutor groupSearchExecutor, NestedGroupResolver nestedGroupResolver, GroupMembershipGraphs groupMembershipGraphs) {
+        this(ldapFactory, roleMapper, builder, roleCache, groupSearchExecutor, nestedGroupResolver, groupMembershipGraphs, new ChangeTrackers());
+    }
+
+    protected LdapAuthorizer(LdapFactory ldapFactory, RoleMapper roleMapper, LdapSearchFilterBuilder builder, RoleCache roleCache, GroupSearchExecutor groupSearchExecutor, NestedGroupResolver nestedGroupResolver, GroupMembershipGraphs groupMembershipGraphs, ChangeTrackers changeTrackers) {
         this.ldapFactory = ldapFactory;
         this.roleMapper = roleMapper;
         this.builder = builder;
+        this.roleCache = roleCache;
+        this.groupSearchExecutor = groupSearchExecutor;
+        this.nestedGroupResolver = nestedGroupResolver;
+        this.groupMembershipGraphs = groupMembershipGraphs;
+        this.changeTrackers = changeTrackers;
     }
 
     public Set<String> authorize(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs) {
@@ -57,7 +101,9 @@ public class LdapAuthorizer {
             return Collections.emptySet();
         }
 
-        return authorizeUser(user, authConfig, roles);
+        changeTrackers.track(authConfig, roles, () -> ldapFactory.ldapForAuthConfig(authConfig));
+        return ROLE_LOOKUPS.execute(new RoleLookup(authConfig, user.getUsername(), roles),
+                () -> roleCache.get(authConfig, user, roles, () -> authorizeUser(user, authConfig, roles)));
     }
 
 
@@ -89,46 +135,223 @@ public class LdapAuthorizer {
         return roleConfigs.stream().filter(roleConfig -> !roles.contains(roleConfig.getName())).collect(Collectors.toList());
     }
 
-    private Set<String> authorizeUser(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs) {
+    /*
+     * Searches which fail are logged and the role is left unassigned, marking the result as incomplete so that it is
+     * not cached.
+     */
+    private ResolvedRoles authorizeUser(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs) {
+        final AtomicBoolean complete = new AtomicBoolean(true);
         try {
             LOG.debug("[Authenticate] Resolving roles for user: `{}` using auth_config: `{}`.", user.getUsername(), authConfig.getId());
             final Set<String> roles = getRolesBasedOnUserAttributeMapping(user, roleConfigs);
-            roles.addAll(getRolesBasedOnGroupMembershipFilter(user, authConfig, unMappedRoles(roles, roleConfigs)));
+            roles.addAll(getRolesBasedOnNestedGroups(user, authConfig, unMappedRoles(roles, roleConfigs), complete));
+            roles.addAll(getRolesBasedOnGroupMembershipFilter(user, authConfig, unMappedRoles(roles, roleConfigs), complete));
 
-            return roles;
+            return new ResolvedRoles(roles, complete.get());
         } catch (Exception e) {
             LOG.error("[Authenticate] Error resolving roles for user: `{}` using auth_config: `{}`", user.getUsername(), authConfig.getId(), e);
         }
-        return Collections.emptySet();
+        return new ResolvedRoles(Collections.emptySet(), false);
+    }
+
+    private Set<String> getRolesBasedOnNestedGroups(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs, AtomicBoolean complete) {
+        final List<RoleConfig> rolesWithNestedGroups = roleConfigs.stream()
+                .filter(roleConfig -> roleConfig.getRoleConfiguration().resolveNestedGroups() && roleConfig.getRoleConfiguration().hasGroupMembershipAttributes())
+                .collect(Collectors.toList());
+        if (rolesWithNestedGroups.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        LOG.debug("[Authenticate] Resolving roles using nested groups.");
+        final Ldap ldap = ldapFactory.ldapForAuthConfig(authConfig);
+        final Set<String> roles = new HashSet<>();
+        for (RoleConfig roleConfig : rolesWithNestedGroups) {
+            try {
+                if (nestedGroupResolver.isMember(user, ldap, authConfig, roleConfig.getRoleConfiguration())) {
+                    roles.add(roleConfig.getName());
+                }
+            } catch (Exception e) {
+                LOG.error("[Authenticate] Error assigning role: `{}` using nested groups of: `{}`.", roleConfig.getName(), roleConfig.getRoleConfiguration().getGroupIdentifiers(), e);
+                complete.set(false);
+            }
+        }
+        return roles;
     }
 
-    private Set<String> getRolesBasedOnGroupMembershipFilter(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs) {
+    private Set<String> getRolesBasedOnGroupMembershipFilter(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs, AtomicBoolean complete) {
         LOG.debug("[Authenticate] Resolving roles using user group membership filter.");
-        final Ldap ldap = ldapFactory.ldapForConfiguration(authConfig.getConfiguration());
+        final Ldap ldap = ldapFactory.ldapForAuthConfig(authConfig);
 
+        final LdapConfiguration configuration = authConfig.getConfiguration();
         Set<String> userRoles = new HashSet<>();
+        List<RoleConfig> rolesToResolveIndividually = roleConfigs;
+        if (configuration != null && configuration.getGroupMembershipGraphRefreshInterval() > 0) {
+            rolesToResolveIndividually = resolveRolesFromGraph(user, authConfig, rolesToResolveIndividually, userRoles);
+        }
+        if (configuration != null && configuration.batchGroupMembershipSearch()) {
+            rolesToResolveIndividually = resolveRolesInBatches(user, ldap, rolesToResolveIndividually, userRoles, complete);
+        }
+
+        final List<RoleConfig> rolesWithGroupMembershipFilter = rolesToResolveIndividually.stream()
+                .filter(roleConfig -> roleConfig.getRoleConfiguration().hasGroupMembershipFilter())
+                .collect(Collectors.toList());
+        final int parallelism = configuration == null ? 1 : configuration.getGroupSearchParallelism();
+        final int deadline = configuration == null ? 0 : configuration.getGroupSearchDeadline();
+
+        // Only searches which finished are recorded, searches which failed or were skipped at the deadline are missing.
+        final Map<RoleConfig, Boolean> memberships = new ConcurrentHashMap<>();
+        groupSearchExecutor.filter(rolesWithGroupMembershipFilter, roleConfig -> isMemberOfGroup(user, ldap, roleConfig, memberships), parallelism, deadline);
+        final Map<RoleConfig, Boolean> searched = new HashMap<>(memberships);
+        searched.forEach((roleConfig, member) -> {
+            if (member) {
+                userRoles.add(roleConfig.getName());
+            }
+        });
+        if (searched.size() < rolesWithGroupMembershipFilter.size()) {
+            complete.set(false);
+        }
+
+        if (userRoles.isEmpty()) {
+            LOG.debug("[Authenticate] No roles found using user group membership filter.");
+        }
+        return userRoles;
+    }
+
+    private boolean isMemberOfGroup(User user, Ldap ldap, RoleConfig roleConfig, Map<RoleConfig, Boolean> memberships) {
+        RoleConfiguration roleConfiguration = roleConfig.getRoleConfiguration();
+        try {
+            LOG.debug("[Authenticate] Resolving role using role_config: `{}` and group_membership_filter: `{}`",
+                    roleConfig.getName(), roleConfiguration.getGroupMembershipFilter());
+            final String filter = builder.build(roleConfiguration.getGroupMembershipFilter(), user.getEntry());
+            final GroupSearchResult<Entry> result = ldap.searchGroupBases(roleConfiguration.getGroupSearchBases(), filter, e -> e);
+            final boolean member = !result.entries().isEmpty();
+            // A group found in one search base grants the role even when another search base could not be searched.
+            if (member || result.complete()) {
+                memberships.put(roleConfig, member);
+            }
+            return member;
+        } catch (Exception e) {
+            LOG.error("[Authenticate] Error assigning role: `{}` using group membership filter: `{}`.", roleConfig.getName(), roleConfiguration.getGroupMembershipFilter(), e);
+        }
+        return false;
+    }
+
+    /*
+     * Resolves the roles which can be answered by the group membership graphs of their group search bases, and
+     * returns the ones which still need to be searched because a graph is not available yet.
+     */
+    private List<RoleConfig> resolveRolesFromGraph(User user, AuthConfig authConfig, List<RoleConfig> roleConfigs, Set<String> userRoles) {
+        final List<RoleConfig> unresolvedRoleConfigs = new ArrayList<>();
+
         for (RoleConfig roleConfig : roleConfigs) {
             RoleConfiguration roleConfiguration = roleConfig.getRoleConfiguration();
             if (!roleConfiguration.hasGroupMembershipFilter()) {
                 continue;
             }
 
-            try {
-                LOG.debug("[Authenticate] Resolving role using role_config: `{}` and group_membership_filter: `{}`",
-                        roleConfig.getName(), roleConfiguration.getGroupMembershipFilter());
-                final String filter = builder.build(roleConfiguration.getGroupMembershipFilter(), user.getEntry());
-                final List<Entry> entries = ldap.searchGroup(roleConfiguration.getGroupSearchBases(), filter, e -> e);
-                if (!entries.isEmpty()) {
+            final GroupMembershipFilter filter = groupMembershipFilter(user, roleConfiguration);
+            if (filter == null || filter.matchesEntriesWithoutAttributes()) {
+                unresolvedRoleConfigs.add(roleConfig);
+                continue;
+            }
+
+            boolean resolved = true;
+            for (String searchBase : roleConfiguration.getGroupSearchBases()) {
+                final GroupMembershipGraph graph = groupMembershipGraphs.graphFor(authConfig, searchBase, filter.getAttributes());
+                if (graph == null) {
+                    resolved = false;
+                } else if (filter.matchesAny(graph)) {
                     userRoles.add(roleConfig.getName());
+                    resolved = true;
+                    break;
                 }
-            } catch (Exception e) {
-                LOG.error("[Authenticate] Error assigning role: `{}` using group membership filter: `{}`.", roleConfig.getName(), roleConfiguration.getGroupMembershipFilter(), e);
+            }
+
+            if (!resolved) {
+                unresolvedRoleConfigs.add(roleConfig);
             }
         }
-        if (userRoles.isEmpty()) {
-            LOG.debug("[Authenticate] No roles found using user group membership filter.");
+
+        if (!unresolvedRoleConfigs.isEmpty()) {
+            LOG.debug("[Authenticate] Group membership graphs are not available yet for roles: `{}`, searching instead.", unresolvedRoleConfigs.stream().map(RoleConfig::getName).collect(Collectors.toList()));
         }
-        return userRoles;
+        return unresolvedRoleConfigs;
+    }
+
+    private List<RoleConfig> resolveRolesInBatches(User user, Ldap ldap, List<RoleConfig> roleConfigs, Set<String> userRoles, AtomicBoolean complete) {
+        final List<RoleConfig> unbatchedRoleConfigs = new ArrayList<>();
+        final Map<String, Map<String, GroupMembershipFilter>> filtersBySearchBase = new LinkedHashMap<>();
+
+        for (RoleConfig roleConfig : roleConfigs) {
+            RoleConfiguration roleConfiguration = roleConfig.getRoleConfiguration();
+            if (!roleConfiguration.hasGroupMembershipFilter()) {
+                continue;
+            }
+
+            final GroupMembershipFilter filter = groupMembershipFilter(user, roleConfiguration);
+            if (filter == null) {
+                unbatchedRoleConfigs.add(roleConfig);
+                continue;
+            }
+
+            for (String searchBase : roleConfiguration.getGroupSearchBases()) {
+                filtersBySearchBase.computeIfAbsent(searchBase, base -> new LinkedHashMap<>()).put(roleConfig.getName(), filter);
+            }
+        }
+
+        filtersBySearchBase.forEach((searchBase, filters) -> {
+            filters.keySet().removeAll(userRoles);
+            if (!filters.isEmpty()) {
+                userRoles.addAll(resolveRolesInSearchBase(ldap, searchBase, filters, complete));
+            }
+        });
+        return unbatchedRoleConfigs;
+    }
+
+    private GroupMembershipFilter groupMembershipFilter(User user, RoleConfiguration roleConfiguration) {
+        try {
+            return GroupMembershipFilter.parse(builder.build(roleConfiguration.getGroupMembershipFilter(), user.getEntry()));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Set<String> resolveRolesInSearchBase(Ldap ldap, String searchBase, Map<String, GroupMembershipFilter> filtersByRole, AtomicBoolean complete) {
+        final Set<String> roles = new HashSet<>();
+        try {
+            LOG.debug("[Authenticate] Resolving roles: `{}` with a single search in group_search_base: `{}`", filtersByRole.keySet(), searchBase);
+            final Set<String> attributes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            attributes.add("dn");
+            filtersByRole.values().forEach(filter -> attributes.addAll(filter.getAttributes()));
+
+            final String filter = filtersByRole.values().stream().map(GroupMembershipFilter::getFilter).collect(Collectors.joining("", "(|", ")"));
+            final List<Entry> entries = ldap.searchGroup(Collections.singletonList(searchBase), filter, attributes.toArray(new String[0]), e -> e);
+
+            boolean hasUnattributedEntries = false;
+            for (Entry entry : entries) {
+                boolean attributed = false;
+                for (Map.Entry<String, GroupMembershipFilter> roleFilter : filtersByRole.entrySet()) {
+                    if (roleFilter.getValue().matches(entry)) {
+                        roles.add(roleFilter.getKey());
+                        attributed = true;
+                    }
+                }
+                hasUnattributedEntries |= !attributed;
+            }
+
+            if (hasUnattributedEntries) {
+                LOG.debug("[Authenticate] Could not map all groups found in group_search_base: `{}` to roles, resolving the remaining roles individually.", searchBase);
+                filtersByRole.forEach((role, roleFilter) -> {
+                    if (!roles.contains(role) && !ldap.searchGroup(Collections.singletonList(searchBase), roleFilter.getFilter(), e -> e).isEmpty()) {
+                        roles.add(role);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            LOG.error("[Authenticate] Error assigning roles: `{}` using group_search_base: `{}`.", filtersByRole.keySet(), searchBase, e);
+            complete.set(false);
+        }
+        return roles;
     }
 
     private Set<String> getRolesBasedOnUserAttributeMapping(User user, List<RoleConfig> roleConfigs) {
@@ -139,4 +362,7 @@ public class LdapAuthorizer {
         }
         return roles;
     }
+
+    private record RoleLookup(AuthConfig authConfig, String username, List<RoleConfig> roleConfigs) {
+    }
 }
@@ -16,11 +16,15 @@
 
 package com.thoughtworks.gocd.authorization.ldap;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.filter.FilterEncoder;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,62 +32,78 @@ import static java.text.MessageFormat.format;
 
 public class LdapSearchFilterBuilder {
     private final static Pattern PATTERN = Pattern.compile("\\{(.*?)\\}");
-
+    private static final Cache<String, FilterTemplate> TEMPLATES = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    /**
+     * Replaces the {@code {attribute}} expressions of the filter with the escaped value of that attribute of the entry,
+     * {@code {dn}} with the DN of the entry.
+     */
     public String build(String filterExpression, Entry entry) {
-        final Set<Match> matches = getExpressions(filterExpression);
-
-        for (Match match : matches) {
-            filterExpression = filterExpression.replace(match.expression, getAttributeValue(filterExpression, entry, match));
-        }
-        return filterExpression;
+        return TEMPLATES.get(filterExpression, FilterTemplate::compile).render(entry);
     }
 
-    private String getAttributeValue(String filterExpression, Entry entry, Match match) {
-        if (match.content.equalsIgnoreCase("dn")) {
-            return entry.getDn().toString();
+    /*
+     * A filter expression split into its literal parts and the attributes between them, so that it is parsed once and
+     * then rendered in a single pass.
+     */
+    private static class FilterTemplate {
+        private final String filterExpression;
+        private final String[] literals;
+        private final String[] attributes;
+
+        private FilterTemplate(String filterExpression, String[] literals, String[] attributes) {
+            this.filterExpression = filterExpression;
+            this.literals = literals;
+            this.attributes = attributes;
         }
 
-        final Attribute attribute = entry.get(match.content);
-        if (attribute == null) {
-            throw new RuntimeException(format("Failed to build search filter `{0}`. Missing attribute for the expression `{1}`", filterExpression, match.content));
+        static FilterTemplate compile(String filterExpression) {
+            final List<String> literals = new ArrayList<>();
+            final List<String> attributes = new ArrayList<>();
+            final Matcher matcher = PATTERN.matcher(filterExpression);
+            int literalStart = 0;
+            while (matcher.find()) {
+                literals.add(filterExpression.substring(literalStart, matcher.start()));
+                attributes.add(matcher.group(1));
+                literalStart = matcher.end();
+            }
+            literals.add(filterExpression.substring(literalStart));
+
+            return new FilterTemplate(filterExpression, literals.toArray(new String[0]), attributes.toArray(new String[0]));
         }
-        return attribute.get().getString();
-    }
 
-    private Set<Match> getExpressions(String filterExpression) {
-        Set<Match> matches = new HashSet<>();
-        Matcher matcher = PATTERN.matcher(filterExpression);
-        while (matcher.find()) {
-            matches.add(new Match(matcher.group(), matcher.group(1)));
+        String render(Entry entry) {
+            final StringBuilder filter = new StringBuilder(filterExpression.length() + 32 * attributes.length);
+            String missingAttribute = null;
+
+            filter.append(literals[0]);
+            for (int i = 0; i < attributes.length; i++) {
+                final String value = valueOf(entry, attributes[i]);
+                if (value != null) {
+                    filter.append(FilterEncoder.encodeFilterValue(value));
+                } else {
+                    filter.append('{').append(attributes[i]).append('}');
+                    missingAttribute = missingAttribute == null ? attributes[i] : missingAttribute;
+                }
+                filter.append(literals[i + 1]);
+            }
+
+            if (missingAttribute != null) {
+                throw new RuntimeException(format("Failed to build search filter `{0}`. Missing attribute for the expression `{1}`", filter, missingAttribute));
+            }
+            return filter.toString();
         }
-        return matches;
-    }
-
-    private class Match {
-        private final String expression;
-        private final String content;
 
-        Match(String expression, String content) {
-            this.expression = expression;
-            this.content = content;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            Match match = (Match) o;
-
-            if (expression != null ? !expression.equals(match.expression) : match.expression != null) return false;
-            return content != null ? content.equals(match.content) : match.content == null;
-        }
+        private static String valueOf(Entry entry, String attributeName) {
+            if (attributeName.equalsIgnoreCase("dn")) {
+                return entry.getDn().toString();
+            }
 
-        @Override
-        public int hashCode() {
-            int result = expression != null ? expression.hashCode() : 0;
-            result = 31 * result + (content != null ? content.hashCode() : 0);
-            return result;
+            final Attribute attribute = entry.get(attributeName);
+            return attribute == null ? null : attribute.get().getString();
         }
     }
 }
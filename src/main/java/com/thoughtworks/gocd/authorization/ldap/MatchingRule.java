@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.utils.DnNormalizer;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The equality matching rules of the standard attributes which group membership filters can be evaluated with on the
+ * client side. An attribute with an unknown or case-exact matching rule, like memberUid which uses caseExactIA5Match,
+ * has no rule here and has to be matched by the server.
+ */
+enum MatchingRule {
+    DISTINGUISHED_NAME("member", "uniqueMember", "memberOf", "isMemberOf", "owner", "roleOccupant", "manager", "secretary", "seeAlso") {
+        @Override
+        String normalize(String value) {
+            return DnNormalizer.normalize(value);
+        }
+    },
+    CASE_IGNORE("cn", "name", "ou", "o", "objectClass", "uid", "mail", "description", "displayName", "sAMAccountName", "userPrincipalName") {
+        @Override
+        String normalize(String value) {
+            return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        }
+    };
+
+    private final Set<String> attributes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    MatchingRule(String... attributes) {
+        this.attributes.addAll(Set.of(attributes));
+    }
+
+    /**
+     * @return the matching rule of the attribute, or null when the attribute has to be matched by the server
+     */
+    static MatchingRule of(String attribute) {
+        for (MatchingRule rule : values()) {
+            if (rule.attributes.contains(attribute)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    abstract String normalize(String value);
+
+    boolean matches(String assertion, String value) {
+        return normalize(assertion).equals(normalize(value));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.cache.GroupGraphCache;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import com.thoughtworks.gocd.authorization.ldap.utils.DnNormalizer;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.filter.FilterEncoder;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static java.text.MessageFormat.format;
+
+/**
+ * Checks whether a user is a direct or nested member of one of the groups of a role. Servers which support
+ * LDAP_MATCHING_RULE_IN_CHAIN resolve the whole chain with a single search, for all other servers the group graph is
+ * walked breadth first on the client side. The walk follows the group membership attribute of the role from group to
+ * group, and, when the role has group search bases, also the groups listing the user or group as member or uniqueMember.
+ */
+public class NestedGroupResolver {
+    static final String MATCHING_RULE_IN_CHAIN = "1.2.840.113556.1.4.1941";
+    private static final int MAXIMUM_GROUPS_TO_VISIT = 10_000;
+    private static final String MEMBER_FILTER = "(|(member={0})(uniqueMember={0}))";
+
+    private final GroupGraphCache groupGraphCache;
+
+    public NestedGroupResolver() {
+        this(new GroupGraphCache());
+    }
+
+    NestedGroupResolver(GroupGraphCache groupGraphCache) {
+        this.groupGraphCache = groupGraphCache;
+    }
+
+    public boolean isMember(User user, Ldap ldap, AuthConfig authConfig, RoleConfiguration roleConfiguration) {
+        if (user.getEntry() == null) {
+            return false;
+        }
+
+        if (ldap.supportsMatchingRuleInChain()) {
+            return isMemberInChain(user, ldap, roleConfiguration);
+        }
+        return isMemberOfGroupGraph(user, ldap, authConfig, roleConfiguration);
+    }
+
+    private boolean isMemberInChain(User user, Ldap ldap, RoleConfiguration roleConfiguration) {
+        final String filter = roleConfiguration.getGroupIdentifiers().stream()
+                .map(group -> "(" + roleConfiguration.getUserGroupMembershipAttribute() + ":" + MATCHING_RULE_IN_CHAIN + ":=" + FilterEncoder.encodeFilterValue(group) + ")")
+                .collect(Collectors.joining("", "(|", ")"));
+
+        LOG.debug("[Authenticate] Resolving nested groups of user: `{}` using filter: `{}`", user.getUsername(), filter);
+        return ldap.matches(user.getEntry().getDn().getName(), filter);
+    }
+
+    private boolean isMemberOfGroupGraph(User user, Ldap ldap, AuthConfig authConfig, RoleConfiguration roleConfiguration) {
+        final String membershipAttribute = roleConfiguration.getUserGroupMembershipAttribute();
+        final List<String> groupSearchBases = roleConfiguration.getGroupSearchBases();
+        final Set<String> groups = normalize(roleConfiguration.getGroupIdentifiers());
+        final Set<String> visited = new HashSet<>();
+        final Queue<String> pending = new ArrayDeque<>(values(user.getEntry(), membershipAttribute));
+        pending.addAll(groupsWithMember(ldap, groupSearchBases, user.getEntry().getDn().getName()));
+
+        while (!pending.isEmpty()) {
+            final String group = pending.poll();
+            final String normalizedGroup = DnNormalizer.normalize(group);
+            if (!visited.add(normalizedGroup)) {
+                continue;
+            }
+
+            if (groups.contains(normalizedGroup)) {
+                return true;
+            }
+
+            if (visited.size() >= MAXIMUM_GROUPS_TO_VISIT) {
+                LOG.warn("[Authenticate] Stopped resolving nested groups of user: `{}` after visiting {} groups.", user.getUsername(), visited.size());
+                return false;
+            }
+
+            pending.addAll(groupGraphCache.parentGroups(authConfig, membershipAttribute, normalizedGroup, () -> parentGroups(ldap, group, membershipAttribute)));
+            if (!groupSearchBases.isEmpty()) {
+                pending.addAll(groupGraphCache.groupsWithMember(authConfig, groupSearchBases, normalizedGroup, () -> groupsWithMember(ldap, groupSearchBases, group)));
+            }
+        }
+
+        return false;
+    }
+
+    private Set<String> parentGroups(Ldap ldap, String group, String membershipAttribute) {
+        final Set<String> parentGroups = ldap.lookup(group, new String[]{membershipAttribute}, entry -> values(entry, membershipAttribute));
+        return parentGroups == null ? Collections.emptySet() : parentGroups;
+    }
+
+    private Set<String> groupsWithMember(Ldap ldap, List<String> groupSearchBases, String member) {
+        if (groupSearchBases.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        final String filter = format(MEMBER_FILTER, FilterEncoder.encodeFilterValue(member));
+        return new HashSet<>(ldap.searchGroup(groupSearchBases, filter, entry -> entry.getDn().getName()));
+    }
+
+    private static Set<String> values(Entry entry, String attributeName) {
+        final Attribute attribute = entry == null ? null : entry.get(attributeName);
+        if (attribute == null) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> values = new HashSet<>();
+        for (Value value : attribute) {
+            values.add(value.getString());
+        }
+        return values;
+    }
+
+    private static Set<String> normalize(List<String> groups) {
+        return groups.stream().map(DnNormalizer::normalize).collect(Collectors.toSet());
+    }
+}
@@ -53,6 +53,13 @@ public class Configuration {
                 return this.key + " must not be blank.";
             }
         }
+
+        if (StringUtils.isNotBlank(input) && metadata.getType() != null) {
+            final String typeError = metadata.getType().validate(input.trim());
+            if (StringUtils.isNotBlank(typeError)) {
+                return this.key + " " + typeError + ".";
+            }
+        }
         return null;
     }
 
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.apacheds;
+
+import org.apache.directory.api.ldap.extras.controls.SynchronizationModeEnum;
+import org.apache.directory.api.ldap.extras.controls.ad.AdDirSyncRequest;
+import org.apache.directory.api.ldap.extras.controls.ad.AdDirSyncRequestImpl;
+import org.apache.directory.api.ldap.extras.controls.ad.AdDirSyncResponse;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValue;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncRequest.SyncRequestValueImpl;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncState.SyncStateTypeEnum;
+import org.apache.directory.api.ldap.extras.controls.syncrepl.syncState.SyncStateValue;
+import org.apache.directory.api.ldap.extras.intermediate.syncrepl.SyncInfoValue;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.*;
+import org.apache.directory.api.ldap.model.message.controls.ChangeType;
+import org.apache.directory.api.ldap.model.message.controls.EntryChange;
+import org.apache.directory.api.ldap.model.message.controls.PersistentSearch;
+import org.apache.directory.api.ldap.model.message.controls.PersistentSearchImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.LdapConnection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static java.text.MessageFormat.format;
+
+/**
+ * Follows the changes below a base dn with whichever change notification the server supports: content synchronization
+ * (RFC 4533, OpenLDAP), DirSync (Active Directory) or persistent search (ApacheDS and others). Every changed entry is
+ * reported to the listener, with its object classes when the server sent them. Whenever changes may have gone unnoticed, such as before the first notification or while
+ * the connection was lost, the listener is told so instead.
+ */
+public class ChangeTracker {
+    private static final String SUPPORTED_CONTROL = "supportedControl";
+    private static final long RETRY_DELAY_IN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long DIRSYNC_POLL_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    public interface Listener {
+        void entryChanged(Entry entry);
+
+        void changesMissed();
+    }
+
+    private enum Mechanism {
+        CONTENT_SYNC(SyncRequestValue.OID),
+        DIRSYNC(AdDirSyncRequest.OID),
+        PERSISTENT_SEARCH(PersistentSearch.OID);
+
+        private final String oid;
+
+        Mechanism(String oid) {
+            this.oid = oid;
+        }
+    }
+
+    private final Ldap ldap;
+    private final String base;
+    private final Listener listener;
+    private final Set<Mechanism> refused = EnumSet.noneOf(Mechanism.class);
+    private volatile boolean running;
+    private volatile LdapConnection connection;
+    private Thread thread;
+    private Mechanism mechanism;
+    private boolean mechanismConfirmed;
+    private byte[] cookie;
+
+    public ChangeTracker(Ldap ldap, String base, Listener listener) {
+        this.ldap = ldap;
+        this.base = base;
+        this.listener = listener;
+    }
+
+    public synchronized ChangeTracker start() {
+        running = true;
+        thread = new Thread(this::run, "ldap-change-tracker");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        close(connection);
+    }
+
+    private void run() {
+        while (running) {
+            try (LdapConnection connection = ldap.openConnection()) {
+                this.connection = connection;
+                // stop() may have found no connection to close while this one was being opened
+                if (!running) {
+                    return;
+                }
+                if (!follow(connection)) {
+                    return;
+                }
+            } catch (Exception e) {
+                if (running) {
+                    LOG.warn("[Change Tracker] Lost track of changes below `{}`, retrying in {} seconds.", base, TimeUnit.MILLISECONDS.toSeconds(RETRY_DELAY_IN_MILLIS), e);
+                }
+            } finally {
+                this.connection = null;
+            }
+            sleep(RETRY_DELAY_IN_MILLIS);
+        }
+    }
+
+    /*
+     * Falls back to the next mechanism the server advertises when it refuses one. Returns false once there is none left.
+     */
+    private boolean follow(LdapConnection connection) throws LdapException, CursorException, IOException {
+        for (Mechanism candidate : supportedMechanisms(connection)) {
+            if (refused.contains(candidate)) {
+                continue;
+            }
+
+            if (candidate != mechanism) {
+                LOG.info("[Change Tracker] Tracking changes below `{}` using {}.", base, candidate);
+                mechanism = candidate;
+                mechanismConfirmed = false;
+                cookie = null;
+            }
+
+            final boolean accepted = switch (candidate) {
+                case CONTENT_SYNC -> followContentSync(connection);
+                case DIRSYNC -> followDirSync(connection);
+                case PERSISTENT_SEARCH -> followPersistentSearch(connection);
+            };
+            if (accepted) {
+                return true;
+            }
+
+            LOG.warn("[Change Tracker] Server refused to track changes below `{}` using {}.", base, candidate);
+            refused.add(candidate);
+        }
+
+        LOG.error("[Change Tracker] Server does not support tracking changes below `{}`, cached entries expire as usual.", base);
+        running = false;
+        return false;
+    }
+
+    private List<Mechanism> supportedMechanisms(LdapConnection connection) throws LdapException {
+        final Entry rootDse = connection.getRootDse(SUPPORTED_CONTROL);
+        final Attribute supportedControls = rootDse == null ? null : rootDse.get(SUPPORTED_CONTROL);
+
+        final List<Mechanism> mechanisms = new ArrayList<>();
+        for (Mechanism candidate : Mechanism.values()) {
+            if (supportedControls != null && supportedControls.contains(candidate.oid)) {
+                mechanisms.add(candidate);
+            }
+        }
+        return mechanisms;
+    }
+
+    /*
+     * Entries sent while refreshing without a cookie are the current content rather than changes, so they are only
+     * looked at once the server signals the end of the refresh. Deletions announced by entryUUID cannot be mapped to a
+     * dn and are reported as missed changes.
+     */
+    private boolean followContentSync(LdapConnection connection) throws LdapException, CursorException, IOException {
+        final SyncRequestValue syncRequest = new SyncRequestValueImpl();
+        syncRequest.setMode(SynchronizationModeEnum.REFRESH_AND_PERSIST);
+        syncRequest.setCookie(cookie);
+        syncRequest.setCritical(true);
+
+        boolean refreshing = cookie == null;
+        boolean changesMissed = cookie == null;
+        try (SearchCursor cursor = connection.search(searchRequest(syncRequest, SchemaConstants.OBJECT_CLASS_AT))) {
+            while (running && cursor.next()) {
+                mechanismConfirmed = true;
+                if (changesMissed) {
+                    changesMissed = false;
+                    listener.changesMissed();
+                }
+                if (cursor.isEntry()) {
+                    final SearchResultEntry result = (SearchResultEntry) cursor.get();
+                    final SyncStateValue syncState = (SyncStateValue) result.getControl(SyncStateValue.OID);
+                    if (syncState != null && syncState.getCookie() != null) {
+                        cookie = syncState.getCookie();
+                    }
+                    if (!refreshing && (syncState == null || syncState.getSyncStateType() != SyncStateTypeEnum.PRESENT)) {
+                        listener.entryChanged(result.getEntry());
+                    }
+                } else if (cursor.isIntermediate() && cursor.getIntermediate() instanceof SyncInfoValue syncInfo) {
+                    if (syncInfo.getCookie() != null) {
+                        cookie = syncInfo.getCookie();
+                    }
+                    switch (syncInfo.getSyncInfoValueType()) {
+                        case REFRESH_DELETE, REFRESH_PRESENT -> refreshing = false;
+                        case SYNC_ID_SET -> {
+                            if (!refreshing) {
+                                listener.changesMissed();
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            }
+            return accepted(running ? cursor.getSearchResultDone() : null);
+        }
+    }
+
+    /*
+     * DirSync is polled. Rounds are repeated right away while they return entries; the entries of the rounds made
+     * without a cookie are the current content rather than changes and are skipped. A server answering without a
+     * DirSync cookie has ignored the control.
+     */
+    private boolean followDirSync(LdapConnection connection) throws LdapException, CursorException, IOException {
+        boolean initialSync = cookie == null;
+
+        while (running) {
+            final AdDirSyncRequest dirSyncRequest = new AdDirSyncRequestImpl();
+            dirSyncRequest.setCookie(cookie);
+            dirSyncRequest.setMaxAttributeCount(Integer.MAX_VALUE);
+            dirSyncRequest.setCritical(true);
+
+            int changes = 0;
+            final SearchResultDone searchResultDone;
+            try (SearchCursor cursor = connection.search(searchRequest(dirSyncRequest))) {
+                while (cursor.next()) {
+                    if (cursor.isEntry()) {
+                        changes++;
+                        if (!initialSync) {
+                            listener.entryChanged(cursor.getEntry());
+                        }
+                    }
+                }
+                searchResultDone = cursor.getSearchResultDone();
+            }
+
+            if (!accepted(searchResultDone)) {
+                return false;
+            }
+
+            final AdDirSyncResponse dirSyncResponse = (AdDirSyncResponse) searchResultDone.getControl(AdDirSyncResponse.OID);
+            if (dirSyncResponse == null) {
+                if (!mechanismConfirmed) {
+                    return false;
+                }
+                cookie = null;
+                throw new LdapException(format("Tracking changes below {0} failed: no DirSync cookie returned", base));
+            }
+            if (cookie == null) {
+                listener.changesMissed();
+            }
+            mechanismConfirmed = true;
+            cookie = dirSyncResponse.getCookie();
+
+            if (changes == 0) {
+                initialSync = false;
+                sleep(DIRSYNC_POLL_INTERVAL_IN_MILLIS);
+            }
+        }
+        return true;
+    }
+
+    private boolean followPersistentSearch(LdapConnection connection) throws LdapException, CursorException, IOException {
+        final PersistentSearch persistentSearch = new PersistentSearchImpl();
+        persistentSearch.setChangesOnly(true);
+        persistentSearch.setReturnECs(true);
+        for (ChangeType changeType : ChangeType.values()) {
+            persistentSearch.enableNotification(changeType);
+        }
+        persistentSearch.setCritical(true);
+
+        try (SearchCursor cursor = connection.search(searchRequest(persistentSearch, SchemaConstants.OBJECT_CLASS_AT))) {
+            listener.changesMissed();
+
+            while (running && cursor.next()) {
+                mechanismConfirmed = true;
+                if (cursor.isEntry()) {
+                    final SearchResultEntry result = (SearchResultEntry) cursor.get();
+                    listener.entryChanged(result.getEntry());
+
+                    final EntryChange entryChange = (EntryChange) result.getControl(EntryChange.OID);
+                    if (entryChange != null && entryChange.getPreviousDn() != null) {
+                        final Entry previousEntry = result.getEntry().clone();
+                        previousEntry.setDn(entryChange.getPreviousDn());
+                        listener.entryChanged(previousEntry);
+                    }
+                }
+            }
+            return accepted(running ? cursor.getSearchResultDone() : null);
+        }
+    }
+
+    /*
+     * Servers differ in how they refuse a control, so a mechanism failing before it ever delivered anything is taken
+     * as refused and makes way for the next one. Later failures are retried from scratch.
+     */
+    private boolean accepted(SearchResultDone searchResultDone) throws LdapException {
+        if (searchResultDone == null || searchResultDone.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS) {
+            return true;
+        }
+
+        if (!mechanismConfirmed) {
+            LOG.debug("[Change Tracker] {} refused with: {}", mechanism, searchResultDone.getLdapResult());
+            return false;
+        }
+
+        cookie = null;
+        throw new LdapException(format("Tracking changes below {0} failed: {1}", base, searchResultDone.getLdapResult()));
+    }
+
+    private SearchRequest searchRequest(Control control, String... attributes) throws LdapException {
+        return new SearchRequestImpl()
+                .setScope(SearchScope.SUBTREE)
+                .addAttributes(attributes)
+                .setSizeLimit(0)
+                .setTimeLimit(0)
+                .setFilter("(objectClass=*)")
+                .setBase(new Dn(base))
+                .addControl(control);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void close(LdapConnection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOG.error("[Change Tracker] Error closing connection.", e);
+        }
+    }
+}
@@ -30,24 +30,37 @@ import java.text.MessageFormat;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 public class ConnectionConfiguration {
-    private boolean useSsl = false;
-    private int ldapPort;
-    private String ldapHost;
-    private String managerDn;
-    private String password;
-    private String certString;
-    private boolean startTLS;
-
+    private final boolean useSsl;
+    private final int ldapPort;
+    private final String ldapHost;
+    private final String managerDn;
+    private final String password;
+    private final String certString;
+    private final boolean startTLS;
+    private final int poolMaxTotal;
+    private final int poolMaxIdle;
+    private final int poolMinIdle;
+    private final int poolMaxWait;
+    private final int poolEvictionInterval;
+    private final boolean poolTestWhileIdle;
+    private final int hashCode;
+    private volatile Certificate certificate;
 
     public ConnectionConfiguration(LdapConfiguration ldapConfiguration) {
         this.ldapHost = ldapConfiguration.getLdapUrl().getHost();
         this.ldapPort = getPort(ldapConfiguration);
         this.useSsl = ldapConfiguration.useSSL();
-        this.certString = ldapConfiguration.getCertificate();
         this.managerDn = ldapConfiguration.getManagerDn();
         this.password = ldapConfiguration.getPassword();
         this.startTLS = ldapConfiguration.startTLS();
         this.certString = ldapConfiguration.getCertificate();
+        this.poolMaxTotal = ldapConfiguration.getPoolMaxTotal();
+        this.poolMaxIdle = ldapConfiguration.getPoolMaxIdle();
+        this.poolMinIdle = ldapConfiguration.getPoolMinIdle();
+        this.poolMaxWait = ldapConfiguration.getPoolMaxWait();
+        this.poolEvictionInterval = ldapConfiguration.getPoolEvictionInterval();
+        this.poolTestWhileIdle = ldapConfiguration.poolTestWhileIdle();
+        this.hashCode = computeHashCode();
     }
 
     private int getPort(LdapConfiguration ldapConfiguration) {
@@ -60,6 +73,30 @@ public class ConnectionConfiguration {
         return ldapConfiguration.useSSL() ? 636 : 389;
     }
 
+    public int getPoolMaxTotal() {
+        return poolMaxTotal;
+    }
+
+    public int getPoolMaxIdle() {
+        return poolMaxIdle;
+    }
+
+    public int getPoolMinIdle() {
+        return poolMinIdle;
+    }
+
+    public int getPoolMaxWait() {
+        return poolMaxWait;
+    }
+
+    public int getPoolEvictionInterval() {
+        return poolEvictionInterval;
+    }
+
+    public boolean poolTestWhileIdle() {
+        return poolTestWhileIdle;
+    }
+
     public LdapConnectionConfig toLdapConnectionConfig() {
         return toLdapConnectionConfig(this.managerDn, this.password);
     }
@@ -76,11 +113,18 @@ public class ConnectionConfiguration {
             config.setCredentials(password);
         }
 
-        config.setTrustManagers(TrustManagerFactory.getInstance().getTrustManager(toCertificate(this.certString)));
+        config.setTrustManagers(TrustManagerFactory.getInstance().getTrustManager(certificate()));
 
         return config;
     }
 
+    private Certificate certificate() {
+        if (certificate == null && !isBlank(certString)) {
+            certificate = toCertificate(certString);
+        }
+        return certificate;
+    }
+
     private Certificate toCertificate(String certString) {
         if (isBlank(certString)) {
             return null;
@@ -101,9 +145,16 @@ public class ConnectionConfiguration {
 
         ConnectionConfiguration that = (ConnectionConfiguration) o;
 
+        if (hashCode != that.hashCode) return false;
         if (useSsl != that.useSsl) return false;
         if (ldapPort != that.ldapPort) return false;
         if (startTLS != that.startTLS) return false;
+        if (poolMaxTotal != that.poolMaxTotal) return false;
+        if (poolMaxIdle != that.poolMaxIdle) return false;
+        if (poolMinIdle != that.poolMinIdle) return false;
+        if (poolMaxWait != that.poolMaxWait) return false;
+        if (poolEvictionInterval != that.poolEvictionInterval) return false;
+        if (poolTestWhileIdle != that.poolTestWhileIdle) return false;
         if (ldapHost != null ? !ldapHost.equals(that.ldapHost) : that.ldapHost != null) return false;
         if (managerDn != null ? !managerDn.equals(that.managerDn) : that.managerDn != null) return false;
         if (password != null ? !password.equals(that.password) : that.password != null) return false;
@@ -112,6 +163,10 @@ public class ConnectionConfiguration {
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
         int result = (useSsl ? 1 : 0);
         result = 31 * result + ldapPort;
         result = 31 * result + (ldapHost != null ? ldapHost.hashCode() : 0);
@@ -119,6 +174,12 @@ public class ConnectionConfiguration {
         result = 31 * result + (password != null ? password.hashCode() : 0);
         result = 31 * result + (certString != null ? certString.hashCode() : 0);
         result = 31 * result + (startTLS ? 1 : 0);
+        result = 31 * result + poolMaxTotal;
+        result = 31 * result + poolMaxIdle;
+        result = 31 * result + poolMinIdle;
+        result = 31 * result + poolMaxWait;
+        result = 31 * result + poolEvictionInterval;
+        result = 31 * result + (poolTestWhileIdle ? 1 : 0);
         return result;
     }
 
@@ -16,48 +16,118 @@
 
 package com.thoughtworks.gocd.authorization.ldap.apacheds;
 
+import com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory;
+import com.thoughtworks.gocd.authorization.ldap.exception.UserNotFoundException;
+import com.thoughtworks.gocd.authorization.ldap.mapper.UserAttributes;
 import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
 import org.apache.directory.api.ldap.extras.controls.ppolicy.PasswordPolicyRequestImpl;
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.filter.FilterEncoder;
 import org.apache.directory.api.ldap.model.message.*;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
 import org.apache.directory.api.ldap.model.name.Dn;
-import org.apache.directory.ldap.client.api.LdapConnectionConfig;
-import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.apache.directory.ldap.client.api.DefaultLdapConnectionFactory;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
 import org.apache.directory.ldap.client.template.AbstractPasswordPolicyResponder;
 import org.apache.directory.ldap.client.template.EntryMapper;
 import org.apache.directory.ldap.client.template.LdapConnectionTemplate;
 import org.apache.directory.ldap.client.template.PasswordWarning;
+import org.apache.directory.ldap.client.template.exception.LdapRuntimeException;
 import org.apache.directory.ldap.client.template.exception.PasswordException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getBindConnectionPool;
 import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getLdapConnectionPool;
+import static com.thoughtworks.gocd.authorization.ldap.utils.Util.newSearchExecutor;
 import static java.text.MessageFormat.format;
 
-public class Ldap {
+public class Ldap implements AutoCloseable {
+    private static final ExecutorService SEARCH_EXECUTOR = newSearchExecutor("ldap-search-", 32);
+    private static final String SUPPORTED_CAPABILITIES = "supportedCapabilities";
+    private static final String ACTIVE_DIRECTORY_CAPABILITY = "1.2.840.113556.1.4.800";
+    private static final String ACTIVE_DIRECTORY_LDS_CAPABILITY = "1.2.840.113556.1.4.1851";
+
     final LdapConnectionTemplate ldapConnectionTemplate;
     private final LdapConfiguration ldapConfiguration;
-    private ConnectionConfiguration connectionConfiguration;
+    private final ConnectionConfiguration connectionConfiguration;
+    private final LdapConnectionPool bindConnectionPool;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Boolean supportsMatchingRuleInChain;
 
+    /**
+     * Holds a reference on the connection pools of the configuration until {@link #close()} is called.
+     */
     public Ldap(LdapConfiguration ldapConfiguration) {
         this.ldapConfiguration = ldapConfiguration;
         this.connectionConfiguration = new ConnectionConfiguration(ldapConfiguration);
-        this.ldapConnectionTemplate = new LdapConnectionTemplate(getLdapConnectionPool(connectionConfiguration));
+        ConnectionPoolFactory.retain(connectionConfiguration);
+        try {
+            this.ldapConnectionTemplate = new LdapConnectionTemplate(getLdapConnectionPool(connectionConfiguration));
+            this.bindConnectionPool = getBindConnectionPool(connectionConfiguration);
+        } catch (RuntimeException e) {
+            ConnectionPoolFactory.release(connectionConfiguration);
+            throw e;
+        }
     }
 
     protected Ldap(LdapConfiguration ldapConfiguration, LdapConnectionTemplate ldapConnectionTemplate) {
         this.ldapConfiguration = ldapConfiguration;
+        this.connectionConfiguration = null;
         this.ldapConnectionTemplate = ldapConnectionTemplate;
+        this.bindConnectionPool = null;
+    }
+
+    ConnectionConfiguration getConnectionConfiguration() {
+        return connectionConfiguration;
+    }
+
+    /**
+     * Gives up the reference on the connection pools, closing them unless other instances still use them.
+     */
+    @Override
+    public void close() {
+        if (connectionConfiguration != null && closed.compareAndSet(false, true)) {
+            ConnectionPoolFactory.release(connectionConfiguration);
+        }
+    }
+
+    /**
+     * Opens a bound connection outside of the pool, without a response timeout, for searches which last as long as the
+     * connection. It is up to the caller to close it.
+     */
+    LdapConnection openConnection() throws LdapException {
+        final LdapConnection connection = new DefaultLdapConnectionFactory(connectionConfiguration.toLdapConnectionConfig()).newLdapConnection();
+        connection.setTimeOut(0);
+        return connection;
     }
 
     public <T> T authenticate(String username, String password, EntryMapper<T> mapper) throws PasswordException {
-        Entry entry = getLdapEntryFor(username);
+        return authenticate(username, password, UserAttributes.ALL, mapper);
+    }
+
+    public <T> T authenticate(String username, String password, String[] attributes, EntryMapper<T> mapper) throws PasswordException {
+        Entry entry = getLdapEntryFor(username, attributes);
 
         try {
             final PasswordWarning warning = preformBind(entry.getDn(), password);
@@ -75,7 +145,11 @@ public class Ldap {
     }
 
     public <T> T searchUser(String username, EntryMapper<T> mapper) {
-        Entry entry = getLdapEntryFor(username);
+        return searchUser(username, UserAttributes.ALL, mapper);
+    }
+
+    public <T> T searchUser(String username, String[] attributes, EntryMapper<T> mapper) {
+        Entry entry = getLdapEntryFor(username, attributes);
 
         try {
             return mapper.map(entry);
@@ -87,7 +161,6 @@ public class Ldap {
 
     private PasswordWarning preformBind(Dn userDn, String password) throws PasswordException {
         final LdapApiService ldapApiService = LdapApiServiceFactory.getSingleton();
-        final LdapConnectionConfig connectionConfig = connectionConfiguration.toLdapConnectionConfig(userDn.getName(), password);
         final BindRequest bindRequest = new BindRequestImpl()
                 .setName(userDn.getName())
                 .setCredentials(password)
@@ -96,17 +169,48 @@ public class Ldap {
         LOG.debug("Performing bind using userDn `{}`.", userDn.getName());
         return new AbstractPasswordPolicyResponder(ldapApiService) {
         }.process(() -> {
-            try (LdapNetworkConnection ldapNetworkConnection = new LdapNetworkConnection(connectionConfig)) {
-                return ldapNetworkConnection.bind(bindRequest);
+            final LdapConnection connection = bindConnectionPool.getConnection();
+            final BindResponse bindResponse;
+            try {
+                bindResponse = connection.bind(bindRequest);
             } catch (LdapException e) {
+                invalidate(bindConnectionPool, connection);
                 throw new RuntimeException(e);
             }
+
+            release(bindConnectionPool, connection);
+            return bindResponse;
         });
     }
 
+    private void release(LdapConnectionPool pool, LdapConnection connection) {
+        try {
+            pool.releaseConnection(connection);
+        } catch (LdapException e) {
+            LOG.error("Error releasing bind connection", e);
+        }
+    }
+
+    private void invalidate(LdapConnectionPool pool, LdapConnection connection) {
+        try {
+            pool.invalidateObject(connection);
+        } catch (Exception e) {
+            LOG.error("Error invalidating bind connection", e);
+        }
+    }
+
     public <T> List<T> search(final String filter, final String[] filterArgs, final EntryMapper<T> mapper, final int maxResultCount) {
+        return search(filter, filterArgs, UserAttributes.ALL, mapper, maxResultCount);
+    }
+
+    public <T> List<T> search(final String filter, final String[] filterArgs, final String[] attributes, final EntryMapper<T> mapper, final int maxResultCount) {
+        final List<String> searchBases = ldapConfiguration.getSearchBases();
+        if (searchInParallel(searchBases)) {
+            return searchInParallel(searchBases, searchBase -> userSearchRequest(searchBase, filter, filterArgs, attributes, maxResultCount), mapper, maxResultCount);
+        }
+
         final List<T> searchResults = new ArrayList<>();
-        for (String searchBase : ldapConfiguration.getSearchBases()) {
+        for (String searchBase : searchBases) {
             int resultsToFetch = resultsToFetch(maxResultCount, searchResults.size());
 
             if (resultsToFetch == -1) {
@@ -114,15 +218,7 @@ public class Ldap {
             }
 
             try {
-                final SearchRequest searchRequest = new SearchRequestImpl()
-                        .setScope(SearchScope.SUBTREE)
-                        .addAttributes("*")
-                        .setSizeLimit(resultsToFetch)
-                        .setFilter(FilterEncoder.format(filter, filterArgs))
-                        .setTimeLimit(ldapConfiguration.getSearchTimeout())
-                        .setBase(new Dn(searchBase));
-
-                searchResults.addAll(ldapConnectionTemplate.search(searchRequest, mapper));
+                searchResults.addAll(ldapConnectionTemplate.search(userSearchRequest(searchBase, filter, filterArgs, attributes, resultsToFetch), mapper));
             } catch (LdapException e) {
                 LOG.error(e.getMessage(), e);
             }
@@ -136,25 +232,255 @@ public class Ldap {
     }
 
     public <T> List<T> searchGroup(List<String> searchBases, String filter, EntryMapper<T> mapper) {
+        return searchGroup(searchBases, filter, new String[]{"dn"}, mapper);
+    }
+
+    /**
+     * Searches the group search bases for groups matching the filter. Unlike the user searches, a search base which
+     * could not be searched fails the whole search, so that callers never mistake a partial result for the complete one.
+     */
+    public <T> List<T> searchGroup(List<String> searchBases, String filter, String[] attributes, EntryMapper<T> mapper) {
+        return searchGroup(searchBases, filter, attributes, mapper, (searchBase, e) -> {
+            throw unchecked(e);
+        });
+    }
+
+    /**
+     * Searches the group search bases for groups matching the filter, keeping the groups found in the search bases
+     * which could be searched when others could not. The result tells whether every search base was searched, as
+     * groups missing from an incomplete result may still exist.
+     */
+    public <T> GroupSearchResult<T> searchGroupBases(List<String> searchBases, String filter, EntryMapper<T> mapper) {
+        final AtomicBoolean complete = new AtomicBoolean(true);
+        final List<T> searchResults = searchGroup(searchBases, filter, new String[]{"dn"}, mapper, (searchBase, e) -> {
+            LOG.error("Failed to search group search base {}.", searchBase, e);
+            complete.set(false);
+        });
+        return new GroupSearchResult<>(searchResults, complete.get());
+    }
+
+    private <T> List<T> searchGroup(List<String> searchBases, String filter, String[] attributes, EntryMapper<T> mapper, BiConsumer<String, Throwable> failureHandler) {
+        final List<Callable<List<T>>> searches = new ArrayList<>();
+        for (String searchBase : searchBases) {
+            searches.add(() -> searchToCompletion(groupSearchRequest(searchBase, filter, attributes), mapper, 0));
+        }
+
+        final List<Future<List<T>>> futures = new ArrayList<>();
+        if (searchInParallel(searchBases)) {
+            searches.forEach(search -> futures.add(SEARCH_EXECUTOR.submit(search)));
+        }
+
         final List<T> searchResults = new ArrayList<>();
+        try {
+            for (int i = 0; i < searches.size(); i++) {
+                try {
+                    searchResults.addAll(futures.isEmpty() ? searches.get(i).call() : futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw unchecked(e);
+                } catch (Exception e) {
+                    failureHandler.accept(searchBases.get(i), e instanceof ExecutionException ? e.getCause() : e);
+                }
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return searchResults;
+    }
+
+    private SearchRequest userSearchRequest(String searchBase, String filter, String[] filterArgs, String[] attributes, int sizeLimit) throws LdapException {
+        return new SearchRequestImpl()
+                .setScope(SearchScope.SUBTREE)
+                .addAttributes(attributes)
+                .setSizeLimit(sizeLimit)
+                .setFilter(FilterEncoder.format(filter, filterArgs))
+                .setTimeLimit(ldapConfiguration.getSearchTimeout())
+                .setBase(new Dn(searchBase));
+    }
+
+    private SearchRequest groupSearchRequest(String searchBase, String filter, String[] attributes) throws LdapException {
+        return new SearchRequestImpl()
+                .setScope(SearchScope.SUBTREE)
+                .addAttributes(attributes)
+                .setSizeLimit(0)
+                .setFilter(filter)
+                .setTimeLimit(ldapConfiguration.getSearchTimeout())
+                .setBase(new Dn(searchBase));
+    }
+
+    private boolean searchInParallel(List<String> searchBases) {
+        return ldapConfiguration.searchBasesInParallel() && searchBases.size() > 1;
+    }
 
+    /*
+     * Searches all bases at once and collects the results in the order of the search bases, so the outcome is the
+     * same as searching them one after another. Searches of the remaining bases are cancelled as soon as the bases
+     * before them have returned enough results.
+     */
+    private <T> List<T> searchInParallel(List<String> searchBases, SearchRequestFactory requestFactory, EntryMapper<T> mapper, int maxResultCount) {
+        final List<Future<List<T>>> futures = new ArrayList<>();
         for (String searchBase : searchBases) {
+            futures.add(SEARCH_EXECUTOR.submit(() -> ldapConnectionTemplate.search(requestFactory.create(searchBase), mapper)));
+        }
+
+        final List<T> searchResults = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            if (maxResultCount > 0 && searchResults.size() >= maxResultCount) {
+                futures.subList(i, futures.size()).forEach(future -> future.cancel(true));
+                break;
+            }
+
             try {
+                final List<T> results = futures.get(i).get();
+                searchResults.addAll(maxResultCount > 0 ? results.subList(0, Math.min(results.size(), maxResultCount - searchResults.size())) : results);
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof LdapException)) {
+                    futures.forEach(future -> future.cancel(true));
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                }
+                LOG.error(e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return searchResults;
+    }
 
-                final SearchRequest searchRequest = new SearchRequestImpl()
-                        .setScope(SearchScope.SUBTREE)
-                        .addAttributes("dn")
-                        .setSizeLimit(0)
-                        .setFilter(filter)
-                        .setTimeLimit(ldapConfiguration.getSearchTimeout())
-                        .setBase(new Dn(searchBase));
+    /**
+     * Searches all search bases using the simple paged results control, handing every entry to {@code consumer} as soon
+     * as it is read. Stops once {@code maxResultCount} entries are found, {@code 0} means no limit. Paging cookies are
+     * only valid on the connection which returned them, so all pages of a search base are read over one connection.
+     *
+     * @return number of entries found
+     */
+    public <T> int searchPaged(String filter, String[] filterArgs, String[] attributes, EntryMapper<T> mapper, int maxResultCount, int pageSize, Consumer<T> consumer) {
+        final AtomicInteger resultCount = new AtomicInteger();
+        for (String searchBase : ldapConfiguration.getSearchBases()) {
+            if (resultsToFetch(maxResultCount, resultCount.get()) == -1) {
+                break;
+            }
 
-                searchResults.addAll(ldapConnectionTemplate.search(searchRequest, mapper));
-            } catch (LdapException e) {
+            try {
+                ldapConnectionTemplate.execute(connection -> {
+                    byte[] cookie = null;
+                    do {
+                        final int resultsToFetch = resultsToFetch(maxResultCount, resultCount.get());
+                        if (resultsToFetch == -1) {
+                            break;
+                        }
+
+                        final SearchRequest searchRequest = withPagedResults(userSearchRequest(searchBase, filter, filterArgs, attributes, resultsToFetch), pageSize, cookie);
+                        cookie = cookie(searchPage(connection, searchRequest, mapper, maxResultCount, resultCount, consumer));
+                    } while (cookie != null && cookie.length > 0);
+                    return null;
+                });
+            } catch (LdapRuntimeException e) {
                 LOG.error(e.getMessage(), e);
             }
         }
-        return searchResults;
+        return resultCount.get();
+    }
+
+    /**
+     * Reads all entries below a group search base matching the filter, page by page over one connection. Unlike the
+     * other searches, a failure is not swallowed, so that callers never mistake a partial result for the complete one.
+     */
+    public <T> void scanGroups(String searchBase, String filter, String[] attributes, EntryMapper<T> mapper, int pageSize, Consumer<T> consumer) throws LdapException {
+        final AtomicInteger resultCount = new AtomicInteger();
+        try {
+            ldapConnectionTemplate.execute(connection -> {
+                byte[] cookie = null;
+                do {
+                    final SearchRequest searchRequest = withPagedResults(groupSearchRequest(searchBase, filter, attributes), pageSize, cookie);
+                    final SearchResultDone searchResultDone = searchPage(connection, searchRequest, mapper, 0, resultCount, consumer);
+                    if (searchResultDone == null || searchResultDone.getLdapResult().getResultCode() != ResultCodeEnum.SUCCESS) {
+                        throw new LdapException(format("Search of {0} did not complete: {1}", searchBase, searchResultDone == null ? null : searchResultDone.getLdapResult()));
+                    }
+                    cookie = cookie(searchResultDone);
+                } while (cookie != null && cookie.length > 0);
+                return null;
+            });
+        } catch (LdapRuntimeException e) {
+            throw new LdapException(e.getMessage(), e);
+        }
+    }
+
+    private SearchRequest withPagedResults(SearchRequest searchRequest, int pageSize, byte[] cookie) {
+        final PagedResults pagedResults = new PagedResultsImpl();
+        pagedResults.setSize(pageSize);
+        pagedResults.setCookie(cookie);
+        return searchRequest.addControl(pagedResults);
+    }
+
+    private byte[] cookie(SearchResultDone searchResultDone) {
+        final PagedResults pagedResults = searchResultDone == null ? null : (PagedResults) searchResultDone.getControl(PagedResults.OID);
+        return pagedResults == null ? null : pagedResults.getCookie();
+    }
+
+    /*
+     * Returns null once maxResultCount entries are found, so that no further page is requested.
+     */
+    private <T> SearchResultDone searchPage(LdapConnection connection, SearchRequest searchRequest, EntryMapper<T> mapper, int maxResultCount, AtomicInteger resultCount, Consumer<T> consumer) throws LdapException {
+        try (SearchCursor cursor = connection.search(searchRequest)) {
+            while (cursor.next()) {
+                if (cursor.isEntry()) {
+                    consumer.accept(mapper.map(cursor.getEntry()));
+                    if (resultCount.incrementAndGet() == maxResultCount) {
+                        return null;
+                    }
+                }
+            }
+
+            return cursor.getSearchResultDone();
+        } catch (CursorException | IOException e) {
+            throw new LdapException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the entry with the given dn, {@code null} if there is no such entry.
+     */
+    public <T> T lookup(String dn, String[] attributes, EntryMapper<T> mapper) {
+        return ldapConnectionTemplate.lookup(ldapConnectionTemplate.newDn(dn), attributes, mapper);
+    }
+
+    /**
+     * Checks whether the entry with the given dn matches the filter, without returning any of its attributes. Fails
+     * if the entry could not be searched.
+     */
+    public boolean matches(String dn, String filter) {
+        try {
+            final SearchRequest searchRequest = new SearchRequestImpl()
+                    .setScope(SearchScope.OBJECT)
+                    .addAttributes(SchemaConstants.NO_ATTRIBUTE)
+                    .setSizeLimit(1)
+                    .setFilter(filter)
+                    .setTimeLimit(ldapConfiguration.getSearchTimeout())
+                    .setBase(new Dn(dn));
+            return !searchToCompletion(searchRequest, entry -> entry, 1).isEmpty();
+        } catch (LdapException e) {
+            throw new LdapRuntimeException(e);
+        }
+    }
+
+    /**
+     * LDAP_MATCHING_RULE_IN_CHAIN is an Active Directory extension, so it is only used against servers advertising
+     * an Active Directory capability in their root DSE. The answer is remembered once the root DSE could be read.
+     */
+    public boolean supportsMatchingRuleInChain() {
+        if (supportsMatchingRuleInChain == null) {
+            try {
+                final Entry rootDse = ldapConnectionTemplate.execute(connection -> connection.getRootDse(SUPPORTED_CAPABILITIES));
+                final Attribute capabilities = rootDse == null ? null : rootDse.get(SUPPORTED_CAPABILITIES);
+                supportsMatchingRuleInChain = capabilities != null && (capabilities.contains(ACTIVE_DIRECTORY_CAPABILITY) || capabilities.contains(ACTIVE_DIRECTORY_LDS_CAPABILITY));
+            } catch (LdapRuntimeException e) {
+                LOG.error("Failed to read supported capabilities from root DSE of {}.", ldapConfiguration.getLdapUrl(), e);
+                return false;
+            }
+        }
+        return supportsMatchingRuleInChain;
     }
 
     public void verifyConnection() {
@@ -166,13 +492,75 @@ public class Ldap {
         return maxResultCount == 0 ? 0 : maxResultCount > resultCount ? maxResultCount - resultCount : -1;
     }
 
-    private Entry getLdapEntryFor(String username) {
-        final List<Entry> results = search(ldapConfiguration.getUserLoginFilter(), new String[]{username}, entry -> entry, 1);
+    /*
+     * Looks the user up in the search bases in order. The user is only reported as not found once every search base
+     * was searched successfully, otherwise the first failure is rethrown so that a search base which could not be
+     * searched never gets the user remembered as unknown.
+     */
+    private Entry getLdapEntryFor(String username, String[] attributes) {
+        final List<Callable<List<Entry>>> searches = new ArrayList<>();
+        for (String searchBase : ldapConfiguration.getSearchBases()) {
+            searches.add(() -> searchToCompletion(userSearchRequest(searchBase, ldapConfiguration.getUserLoginFilter(), new String[]{username}, attributes, 1), entry -> entry, 1));
+        }
 
-        if (results.isEmpty()) {
-            throw new RuntimeException(format("User {0} does not exist in {1}", username, ldapConfiguration.getLdapUrl()));
+        final List<Future<List<Entry>>> futures = new ArrayList<>();
+        if (searchInParallel(ldapConfiguration.getSearchBases())) {
+            searches.forEach(search -> futures.add(SEARCH_EXECUTOR.submit(search)));
         }
 
-        return results.get(0);
+        RuntimeException failure = null;
+        for (int i = 0; i < searches.size(); i++) {
+            try {
+                final List<Entry> results = futures.isEmpty() ? searches.get(i).call() : futures.get(i).get();
+                if (!results.isEmpty()) {
+                    futures.forEach(future -> future.cancel(true));
+                    return results.get(0);
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new com.thoughtworks.gocd.authorization.ldap.exception.LdapException(e);
+            } catch (Exception e) {
+                final Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                LOG.error(cause.getMessage(), cause);
+                if (failure == null) {
+                    failure = unchecked(cause);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        throw new UserNotFoundException(format("User {0} does not exist in {1}", username, ldapConfiguration.getLdapUrl()));
+    }
+
+    /*
+     * Unlike LdapConnectionTemplate#search, fails unless the server reports the search as successful, so an invalid
+     * search base or an error response is not mistaken for a search without results.
+     */
+    private <T> List<T> searchToCompletion(SearchRequest searchRequest, EntryMapper<T> mapper, int maxResultCount) throws LdapException {
+        final List<T> results = new ArrayList<>();
+        final SearchResultDone searchResultDone = ldapConnectionTemplate.execute(connection -> searchPage(connection, searchRequest, mapper, maxResultCount, new AtomicInteger(), results::add));
+
+        if (searchResultDone != null && searchResultDone.getLdapResult().getResultCode() != ResultCodeEnum.SUCCESS) {
+            throw new LdapException(format("Search of {0} did not complete: {1}", searchRequest.getBase(), searchResultDone.getLdapResult()));
+        }
+        return results;
+    }
+
+    private static RuntimeException unchecked(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        return e instanceof LdapException ? new LdapRuntimeException((LdapException) e) : new com.thoughtworks.gocd.authorization.ldap.exception.LdapException(e);
+    }
+
+    public record GroupSearchResult<T>(List<T> entries, boolean complete) {
+    }
+
+    private interface SearchRequestFactory {
+        SearchRequest create(String searchBase) throws LdapException;
     }
 }
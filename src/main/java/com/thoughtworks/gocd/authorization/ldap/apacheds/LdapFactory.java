@@ -16,10 +16,68 @@
 
 package com.thoughtworks.gocd.authorization.ldap.apacheds;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolWarmer.warmUp;
+
+/**
+ * Caches an ldap instance per configuration of the auth configs in use. Every ldap instance holds a reference on the
+ * connection pools of its connection configuration, so pools shared by instances of configurations which only differ
+ * in non-connection settings stay open until the last of them is closed.
+ */
 public class LdapFactory {
+    private static final Cache<LdapConfiguration, Ldap> LDAP_CACHE = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterAccess(Duration.ofHours(1))
+            .executor(Runnable::run)
+            .removalListener(LdapFactory::onRemoval)
+            .build();
+    private static final Map<String, LdapConfiguration> CONFIGURATIONS_BY_AUTH_CONFIG_ID = new ConcurrentHashMap<>();
+
+    public Ldap ldapForAuthConfig(AuthConfig authConfig) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        final Ldap ldap = LDAP_CACHE.get(configuration, LdapFactory::createLdap);
+        final LdapConfiguration previous = CONFIGURATIONS_BY_AUTH_CONFIG_ID.put(authConfig.getId(), configuration);
+
+        if (previous != null && !previous.equals(configuration)) {
+            LOG.info("[Ldap Factory] Configuration changed for auth_config: `{}`. Evicting the stale ldap instance.", authConfig.getId());
+            LDAP_CACHE.invalidate(previous);
+        }
+
+        return ldap;
+    }
+
+    /**
+     * Creates an ldap instance which is neither cached nor warmed up, for configurations which are not saved yet. It is
+     * up to the caller to close it.
+     */
     public Ldap ldapForConfiguration(LdapConfiguration configuration) {
         return new Ldap(configuration);
     }
+
+    private static Ldap createLdap(LdapConfiguration configuration) {
+        final Ldap ldap = new Ldap(configuration);
+        try {
+            warmUp(ldap.getConnectionConfiguration(), configuration.getPoolWarmUpConnections());
+            return ldap;
+        } catch (RuntimeException e) {
+            ldap.close();
+            throw e;
+        }
+    }
+
+    private static void onRemoval(LdapConfiguration configuration, Ldap ldap, RemovalCause cause) {
+        if (ldap != null) {
+            ldap.close();
+        }
+    }
 }
@@ -23,62 +23,138 @@ import org.apache.directory.ldap.client.api.DefaultLdapConnectionFactory;
 import org.apache.directory.ldap.client.api.DefaultPoolableLdapConnectionFactory;
 import org.apache.directory.ldap.client.api.LdapConnection;
 import org.apache.directory.ldap.client.api.LdapConnectionPool;
+import org.apache.directory.ldap.client.api.ValidatingPoolableLdapConnectionFactory;
 
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static java.text.MessageFormat.format;
 
 public class ConnectionPoolFactory {
-    private final static Map<ConnectionConfiguration, LdapConnectionPool> ldapConnectionPoolMap = new HashMap<>();
-    private static final GenericObjectPoolConfig<LdapConnection> CONNECTION_POOL_CONFIGURATION = createConfig();
+    private final static ConcurrentMap<ConnectionConfiguration, LdapConnectionPool> ldapConnectionPoolMap = new ConcurrentHashMap<>();
+    private final static ConcurrentMap<ConnectionConfiguration, LdapConnectionPool> bindConnectionPoolMap = new ConcurrentHashMap<>();
+    private final static Map<ConnectionConfiguration, Integer> referenceCounts = new HashMap<>();
+    private static final int BIND_POOL_MAX_TOTAL = 50;
+    private static final int BIND_POOL_MAX_IDLE = 10;
 
-    private static <T> GenericObjectPoolConfig<T> createConfig() {
-        GenericObjectPoolConfig<T> poolConfig = new GenericObjectPoolConfig<>();
+    private static GenericObjectPoolConfig<LdapConnection> createConfig(ConnectionConfiguration configuration) {
+        GenericObjectPoolConfig<LdapConnection> poolConfig = new GenericObjectPoolConfig<>();
         poolConfig.setLifo(true);
-        poolConfig.setMaxTotal(250);
-        poolConfig.setMaxIdle(50);
-        poolConfig.setMinIdle(0);
+        poolConfig.setMaxTotal(configuration.getPoolMaxTotal());
+        poolConfig.setMaxIdle(configuration.getPoolMaxIdle());
+        poolConfig.setMinIdle(configuration.getPoolMinIdle());
         poolConfig.setNumTestsPerEvictionRun(3);
         poolConfig.setMinEvictableIdleDuration(Duration.ofMinutes(30));
         poolConfig.setTestOnBorrow(false);
         poolConfig.setTestOnReturn(false);
-        poolConfig.setTestWhileIdle(false);
         poolConfig.setBlockWhenExhausted(true);
+        applyWaitAndEvictionSettings(poolConfig, configuration);
         return poolConfig;
     }
 
+    private static GenericObjectPoolConfig<LdapConnection> createBindConfig(ConnectionConfiguration configuration) {
+        GenericObjectPoolConfig<LdapConnection> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setLifo(true);
+        poolConfig.setMaxTotal(Math.min(BIND_POOL_MAX_TOTAL, configuration.getPoolMaxTotal()));
+        poolConfig.setMaxIdle(Math.min(BIND_POOL_MAX_IDLE, configuration.getPoolMaxIdle()));
+        poolConfig.setMinIdle(0);
+        poolConfig.setNumTestsPerEvictionRun(3);
+        poolConfig.setMinEvictableIdleDuration(Duration.ofMinutes(5));
+        poolConfig.setTestOnBorrow(true);
+        poolConfig.setTestOnReturn(false);
+        poolConfig.setBlockWhenExhausted(true);
+        applyWaitAndEvictionSettings(poolConfig, configuration);
+        return poolConfig;
+    }
+
+    private static void applyWaitAndEvictionSettings(GenericObjectPoolConfig<LdapConnection> poolConfig, ConnectionConfiguration configuration) {
+        if (configuration.getPoolMaxWait() > 0) {
+            poolConfig.setMaxWait(Duration.ofSeconds(configuration.getPoolMaxWait()));
+        }
+
+        if (configuration.getPoolEvictionInterval() > 0) {
+            poolConfig.setTimeBetweenEvictionRuns(Duration.ofSeconds(configuration.getPoolEvictionInterval()));
+        }
+
+        poolConfig.setTestWhileIdle(configuration.poolTestWhileIdle());
+    }
+
     private ConnectionPoolFactory() {
     }
 
     public static LdapConnectionPool getLdapConnectionPool(ConnectionConfiguration configuration) {
-        try {
-            return ldapConnectionPool(configuration);
-        } catch (Exception e) {
-            throw new LdapException(e);
+        final LdapConnectionPool ldapConnectionPool = ldapConnectionPoolMap.get(configuration);
+        if (ldapConnectionPool != null) {
+            return ldapConnectionPool;
+        }
+
+        return ldapConnectionPoolMap.computeIfAbsent(configuration, ConnectionPoolFactory::createLdapConnectionPool);
+    }
+
+    public static LdapConnectionPool getBindConnectionPool(ConnectionConfiguration configuration) {
+        final LdapConnectionPool bindConnectionPool = bindConnectionPoolMap.get(configuration);
+        if (bindConnectionPool != null) {
+            return bindConnectionPool;
         }
+
+        return bindConnectionPoolMap.computeIfAbsent(configuration, ConnectionPoolFactory::createBindConnectionPool);
     }
 
-    private static LdapConnectionPool ldapConnectionPool(ConnectionConfiguration configuration) throws Exception {
-        LdapConnectionPool ldapConnectionPool = ldapConnectionPoolMap.get(configuration);
+    /**
+     * Registers a user of the pools of the given configuration. Must be called before the pools are looked up, so that
+     * a concurrent {@link #release(ConnectionConfiguration)} of the last other user cannot close them in between.
+     */
+    public static synchronized void retain(ConnectionConfiguration configuration) {
+        referenceCounts.merge(configuration, 1, Integer::sum);
+    }
+
+    /**
+     * Unregisters a user of the pools of the given configuration, closing the pools once nobody uses them any more.
+     */
+    public static synchronized void release(ConnectionConfiguration configuration) {
+        final Integer references = referenceCounts.computeIfPresent(configuration, (key, count) -> count > 1 ? count - 1 : null);
+        if (references == null) {
+            closeLdapConnectionPool(configuration);
+        }
+    }
+
+    public static void closeLdapConnectionPool(ConnectionConfiguration configuration) {
+        close("Connection Pool", ldapConnectionPoolMap.remove(configuration));
+        close("Bind Connection Pool", bindConnectionPoolMap.remove(configuration));
+    }
+
+    private static void close(String poolName, LdapConnectionPool ldapConnectionPool) {
         if (ldapConnectionPool == null) {
-            synchronized (configuration.toString().intern()) {
-                ldapConnectionPool = ldapConnectionPoolMap.get(configuration);
-                if (ldapConnectionPool == null) {
-                    ldapConnectionPool = createLdapConnectionPool(configuration);
-                    register(configuration, ldapConnectionPool);
-                }
-            }
+            return;
         }
 
-        return ldapConnectionPool;
+        try {
+            LOG.info("[{}] Closing connection pool with {} active and {} idle connection(s).", poolName, ldapConnectionPool.getNumActive(), ldapConnectionPool.getNumIdle());
+            ldapConnectionPool.close();
+        } catch (Exception e) {
+            LOG.error(format("[{0}] Error closing connection pool.", poolName), e);
+        }
     }
 
-    private static LdapConnectionPool createLdapConnectionPool(ConnectionConfiguration configuration) throws Exception {
-        final DefaultLdapConnectionFactory factory = new DefaultLdapConnectionFactory(configuration.toLdapConnectionConfig());
-        return new LdapConnectionPool(new DefaultPoolableLdapConnectionFactory(factory), CONNECTION_POOL_CONFIGURATION);
+    private static LdapConnectionPool createLdapConnectionPool(ConnectionConfiguration configuration) {
+        try {
+            final DefaultLdapConnectionFactory factory = new DefaultLdapConnectionFactory(configuration.toLdapConnectionConfig());
+            return new LdapConnectionPool(new DefaultPoolableLdapConnectionFactory(factory), createConfig(configuration));
+        } catch (Exception e) {
+            throw new LdapException(e);
+        }
     }
 
-    private static void register(ConnectionConfiguration configuration, LdapConnectionPool ldapConnectionFactory) {
-        ldapConnectionPoolMap.put(configuration, ldapConnectionFactory);
+    private static LdapConnectionPool createBindConnectionPool(ConnectionConfiguration configuration) {
+        try {
+            final DefaultLdapConnectionFactory factory = new DefaultLdapConnectionFactory(configuration.toLdapConnectionConfig());
+            return new LdapConnectionPool(new ValidatingPoolableLdapConnectionFactory(factory), createBindConfig(configuration));
+        } catch (Exception e) {
+            throw new LdapException(e);
+        }
     }
 }
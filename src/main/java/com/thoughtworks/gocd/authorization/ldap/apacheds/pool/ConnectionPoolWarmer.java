@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.apacheds.pool;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.ConnectionConfiguration;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getBindConnectionPool;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getLdapConnectionPool;
+
+public class ConnectionPoolWarmer {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService WARM_UP_EXECUTOR = Executors.newFixedThreadPool(4, runnable -> {
+        final Thread thread = new Thread(runnable, "ldap-pool-warm-up-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ConnectionPoolWarmer() {
+    }
+
+    public static CompletableFuture<Void> warmUp(ConnectionConfiguration configuration, int connections) {
+        if (connections <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.allOf(
+                warmUp("Connection Pool", getLdapConnectionPool(configuration), connections),
+                warmUp("Bind Connection Pool", getBindConnectionPool(configuration), connections)
+        );
+    }
+
+    private static CompletableFuture<Void> warmUp(String poolName, LdapConnectionPool pool, int connections) {
+        final int connectionsToOpen = Math.min(connections, pool.getMaxIdle() - pool.getNumIdle());
+        if (connectionsToOpen <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<?>[] futures = IntStream.range(0, connectionsToOpen)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> addConnection(pool), WARM_UP_EXECUTOR))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(futures).whenComplete((result, e) -> {
+            if (e != null) {
+                LOG.warn("[{}] Warm-up finished with {} idle connection(s). Failed to open connection: {}", poolName, pool.getNumIdle(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } else {
+                LOG.info("[{}] Warm-up finished with {} idle connection(s).", poolName, pool.getNumIdle());
+            }
+        });
+    }
+
+    private static void addConnection(LdapConnectionPool pool) {
+        try {
+            pool.addObject();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -16,12 +16,17 @@
 
 package com.thoughtworks.gocd.authorization.ldap.apacheds.ssl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
 import java.security.*;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
@@ -29,12 +34,27 @@ import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
 public class TrustManagerFactory {
     public static final String KEYSTORE_PASSWD = UUID.randomUUID().toString();
     private static final TrustManagerFactory INSTANCE = new TrustManagerFactory();
+    private final Cache<String, X509TrustManager> trustManagersByFingerprint = Caffeine.newBuilder()
+            .maximumSize(100)
+            .build();
 
     private TrustManagerFactory() {
     }
 
     public X509TrustManager getTrustManager(Certificate certificate) {
-        return trustManager(certificate);
+        if (certificate == null) {
+            return trustManager(null);
+        }
+
+        return trustManagersByFingerprint.get(fingerprint(certificate), fingerprint -> trustManager(certificate));
+    }
+
+    static String fingerprint(Certificate certificate) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+        } catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            throw new RuntimeException("Failed to compute certificate fingerprint", e);
+        }
     }
 
     private X509TrustManager trustManager(final Certificate certificate) {
@@ -83,18 +103,14 @@ public class TrustManagerFactory {
         }
     }
 
-    private void addCertificate(Certificate certificate, KeyStore keyStore) throws NoSuchAlgorithmException, KeyStoreException {
+    private void addCertificate(Certificate certificate, KeyStore keyStore) throws KeyStoreException {
         if (certificate == null) {
             LOG.debug("Cannot add null certificate to keystore.");
             return;
         }
 
-        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-        final KeyPair keyPair = keyPairGenerator.generateKeyPair();
-
         LOG.debug("Adding certificate to keystore.");
         keyStore.setCertificateEntry("cert", certificate);
-        keyStore.setKeyEntry("private", keyPair.getPrivate(), KEYSTORE_PASSWD.toCharArray(), new Certificate[]{certificate});
         LOG.debug("Certificate successfully added to keystore.");
     }
 }
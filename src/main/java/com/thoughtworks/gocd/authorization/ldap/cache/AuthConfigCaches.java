@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.name.Dn;
+
+import java.time.Duration;
+
+class AuthConfigCaches<K, V> {
+    private final Cache<AuthConfig, Cache<K, V>> caches = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    Cache<K, V> cacheFor(AuthConfig authConfig, int ttlInSeconds, int maximumSize) {
+        if (ttlInSeconds <= 0) {
+            return null;
+        }
+
+        return caches.get(authConfig, key -> Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlInSeconds))
+                .recordStats()
+                .build());
+    }
+
+    Cache<K, V> existingCacheFor(AuthConfig authConfig) {
+        return caches.getIfPresent(authConfig);
+    }
+
+    void invalidateAll() {
+        caches.asMap().values().forEach(Cache::invalidateAll);
+    }
+
+    void invalidateAll(AuthConfig authConfig) {
+        final Cache<K, V> cache = existingCacheFor(authConfig);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    static boolean isEntry(Entry entry, Dn dn) {
+        return entry != null && entry.getDn() != null && sameDn(entry.getDn().getNormName(), dn);
+    }
+
+    static boolean sameDn(String normalizedDn, Dn dn) {
+        return normalizedDn.equalsIgnoreCase(dn.getNormName());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.thoughtworks.gocd.authorization.ldap.mapper.UserAttributes;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.Credentials;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.name.Dn;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+import static org.apache.commons.lang3.StringUtils.isAnyBlank;
+
+public class AuthenticationCache {
+    private static final int ITERATIONS = 10_000;
+    private static final int KEY_LENGTH = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final AuthConfigCaches<UserKey, CachedAuthentication> CACHES = new AuthConfigCaches<>();
+
+    public Entry getIfPresent(AuthConfig authConfig, Credentials credentials) {
+        return getIfPresent(authConfig, credentials, UserAttributes.ALL);
+    }
+
+    public Entry getIfPresent(AuthConfig authConfig, Credentials credentials, String[] attributes) {
+        final Cache<UserKey, CachedAuthentication> cache = cacheFor(authConfig);
+        if (cache == null || isAnyBlank(credentials.getUsername(), credentials.getPassword())) {
+            return null;
+        }
+
+        final CachedAuthentication cachedAuthentication = cache.getIfPresent(UserKey.of(credentials.getUsername(), attributes));
+        if (cachedAuthentication == null || !cachedAuthentication.matches(credentials.getPassword())) {
+            return null;
+        }
+
+        LOG.debug("[Authentication Cache] Using cached authentication for user: `{}` and auth_config: `{}`.", credentials.getUsername(), authConfig.getId());
+        return cachedAuthentication.entry;
+    }
+
+    public void put(AuthConfig authConfig, Credentials credentials, Entry entry) {
+        put(authConfig, credentials, UserAttributes.ALL, entry);
+    }
+
+    public void put(AuthConfig authConfig, Credentials credentials, String[] attributes, Entry entry) {
+        final Cache<UserKey, CachedAuthentication> cache = cacheFor(authConfig);
+        if (cache == null || isAnyBlank(credentials.getUsername(), credentials.getPassword())) {
+            return;
+        }
+
+        cache.put(UserKey.of(credentials.getUsername(), attributes), new CachedAuthentication(credentials.getPassword(), entry));
+    }
+
+    public void invalidate(AuthConfig authConfig, String username) {
+        final Cache<UserKey, CachedAuthentication> cache = CACHES.existingCacheFor(authConfig);
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.username().equals(username));
+        }
+    }
+
+    /**
+     * Drops the authentications of the entry with the given dn.
+     *
+     * @return whether any authentication was dropped
+     */
+    public boolean invalidateEntry(AuthConfig authConfig, Dn dn) {
+        final Cache<UserKey, CachedAuthentication> cache = CACHES.existingCacheFor(authConfig);
+        return cache != null && cache.asMap().values().removeIf(cachedAuthentication -> AuthConfigCaches.isEntry(cachedAuthentication.entry, dn));
+    }
+
+    public void invalidateAll(AuthConfig authConfig) {
+        CACHES.invalidateAll(authConfig);
+    }
+
+    private Cache<UserKey, CachedAuthentication> cacheFor(AuthConfig authConfig) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        if (configuration == null) {
+            return null;
+        }
+
+        return CACHES.cacheFor(authConfig, configuration.getAuthenticationCacheTtl(), configuration.getAuthenticationCacheSize());
+    }
+
+    private static class CachedAuthentication {
+        private final byte[] salt;
+        private final byte[] hash;
+        private final Entry entry;
+
+        CachedAuthentication(String password, Entry entry) {
+            this.salt = new byte[16];
+            RANDOM.nextBytes(this.salt);
+            this.hash = hash(password, salt);
+            this.entry = entry;
+        }
+
+        boolean matches(String password) {
+            return MessageDigest.isEqual(hash, hash(password, salt));
+        }
+
+        private static byte[] hash(String password, byte[] salt) {
+            final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, KEY_LENGTH);
+            try {
+                return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("Failed to hash password", e);
+            } finally {
+                spec.clearPassword();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Caches the edges of the group graph, the groups a group is a member of, which are walked to resolve nested groups.
+ * Edges are kept apart by how they were found: through a membership attribute of the group, or by searching group
+ * search bases for groups listing the group as member.
+ */
+public class GroupGraphCache {
+    private static final int MAXIMUM_SIZE = 10_000;
+    private static final AuthConfigCaches<GroupKey, Set<String>> CACHES = new AuthConfigCaches<>();
+
+    public Set<String> parentGroups(AuthConfig authConfig, String membershipAttribute, String group, Supplier<Set<String>> resolver) {
+        final Cache<GroupKey, Set<String>> cache = cacheFor(authConfig);
+        if (cache == null) {
+            return resolver.get();
+        }
+
+        return cache.get(new GroupKey(membershipAttribute.toLowerCase(Locale.ROOT), List.of(), group), key -> Set.copyOf(resolver.get()));
+    }
+
+    public Set<String> groupsWithMember(AuthConfig authConfig, List<String> groupSearchBases, String group, Supplier<Set<String>> resolver) {
+        final Cache<GroupKey, Set<String>> cache = cacheFor(authConfig);
+        if (cache == null) {
+            return resolver.get();
+        }
+
+        return cache.get(new GroupKey(null, List.copyOf(groupSearchBases), group), key -> Set.copyOf(resolver.get()));
+    }
+
+    public void invalidateAll(AuthConfig authConfig) {
+        CACHES.invalidateAll(authConfig);
+    }
+
+    private Cache<GroupKey, Set<String>> cacheFor(AuthConfig authConfig) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        if (configuration == null) {
+            return null;
+        }
+
+        return CACHES.cacheFor(authConfig, configuration.getGroupGraphCacheTtl(), MAXIMUM_SIZE);
+    }
+
+    private record GroupKey(String membershipAttribute, List<String> groupSearchBases, String group) {
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import org.apache.directory.api.ldap.model.name.Dn;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+
+public class RoleCache {
+    private static final int MAXIMUM_SIZE = 10_000;
+    private static final AuthConfigCaches<RoleCacheKey, Set<String>> CACHES = new AuthConfigCaches<>();
+    private static final Map<String, List<RoleConfig>> ROLE_CONFIGS_BY_AUTH_CONFIG_ID = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached roles of the user, resolving them otherwise. Roles which could only be resolved partially are
+     * returned but not cached, so that the next request resolves them again.
+     */
+    public Set<String> get(AuthConfig authConfig, User user, List<RoleConfig> roleConfigs, Supplier<ResolvedRoles> resolver) {
+        final Cache<RoleCacheKey, Set<String>> cache = cacheFor(authConfig);
+        if (cache == null) {
+            return resolver.get().roles();
+        }
+
+        final List<RoleConfig> previous = ROLE_CONFIGS_BY_AUTH_CONFIG_ID.put(authConfig.getId(), List.copyOf(roleConfigs));
+        if (previous != null && !previous.equals(roleConfigs)) {
+            LOG.info("[Role Cache] Role configs changed for auth_config: `{}`. Invalidating cached roles.", authConfig.getId());
+            cache.invalidateAll();
+        }
+
+        final RoleCacheKey key = new RoleCacheKey(userKey(user), List.copyOf(roleConfigs));
+        final Set<String> cachedRoles = cache.getIfPresent(key);
+        if (cachedRoles != null) {
+            return cachedRoles;
+        }
+
+        final ResolvedRoles resolvedRoles = resolver.get();
+        if (!resolvedRoles.complete()) {
+            LOG.debug("[Role Cache] Not caching roles of user: `{}` as they could not be resolved completely.", user.getUsername());
+            return resolvedRoles.roles();
+        }
+
+        final Set<String> roles = Set.copyOf(resolvedRoles.roles());
+        cache.put(key, roles);
+        return roles;
+    }
+
+    /**
+     * Drops the roles resolved for the user with the given dn.
+     *
+     * @return whether any roles were dropped
+     */
+    public boolean invalidateUser(AuthConfig authConfig, Dn dn) {
+        final Cache<RoleCacheKey, Set<String>> cache = CACHES.existingCacheFor(authConfig);
+        return cache != null && cache.asMap().keySet().removeIf(key -> AuthConfigCaches.sameDn(key.user(), dn));
+    }
+
+    public void invalidateAll(AuthConfig authConfig) {
+        CACHES.invalidateAll(authConfig);
+    }
+
+    private String userKey(User user) {
+        if (user.getEntry() != null && user.getEntry().getDn() != null) {
+            return user.getEntry().getDn().getNormName();
+        }
+        return user.getUsername();
+    }
+
+    private Cache<RoleCacheKey, Set<String>> cacheFor(AuthConfig authConfig) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        if (configuration == null) {
+            return null;
+        }
+
+        return CACHES.cacheFor(authConfig, configuration.getRoleCacheTtl(), MAXIMUM_SIZE);
+    }
+
+    private record RoleCacheKey(String user, List<RoleConfig> roleConfigs) {
+    }
+
+    /**
+     * Roles resolved for a user, {@code complete} is false when some of the searches needed to resolve them failed.
+     */
+    public record ResolvedRoles(Set<String> roles, boolean complete) {
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+
+/**
+ * Remembers usernames which were not found, so that repeated lookups of an unknown user do not search the server
+ * again. Kept apart from the {@link UserCache}, with a TTL and size of its own.
+ */
+public class UnknownUserCache {
+    private static final AuthConfigCaches<String, Boolean> CACHES = new AuthConfigCaches<>();
+
+    public boolean isUnknown(AuthConfig authConfig, String username) {
+        final Cache<String, Boolean> cache = cacheFor(authConfig);
+        if (cache == null || username == null || cache.getIfPresent(username) == null) {
+            return false;
+        }
+
+        LOG.debug("[Unknown User Cache] User `{}` is known not to exist for auth_config: `{}`.", username, authConfig.getId());
+        return true;
+    }
+
+    public void markUnknown(AuthConfig authConfig, String username) {
+        final Cache<String, Boolean> cache = cacheFor(authConfig);
+        if (cache != null && username != null) {
+            cache.put(username, Boolean.TRUE);
+        }
+    }
+
+    public void invalidateAll(AuthConfig authConfig) {
+        CACHES.invalidateAll(authConfig);
+    }
+
+    private Cache<String, Boolean> cacheFor(AuthConfig authConfig) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        if (configuration == null) {
+            return null;
+        }
+
+        return CACHES.cacheFor(authConfig, configuration.getUnknownUserCacheTtl(), configuration.getUnknownUserCacheSize());
+    }
+}
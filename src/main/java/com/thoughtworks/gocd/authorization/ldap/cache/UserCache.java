@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thoughtworks.gocd.authorization.ldap.mapper.UserAttributes;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import org.apache.directory.api.ldap.model.name.Dn;
+
+import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
+
+public class UserCache {
+    private static final AuthConfigCaches<UserKey, User> CACHES = new AuthConfigCaches<>();
+
+    public User getIfPresent(AuthConfig authConfig, String username) {
+        return getIfPresent(authConfig, username, UserAttributes.ALL);
+    }
+
+    public User getIfPresent(AuthConfig authConfig, String username, String[] attributes) {
+        final Cache<UserKey, User> cache = cacheFor(authConfig);
+        if (cache == null || username == null) {
+            return null;
+        }
+
+        final User user = cache.getIfPresent(UserKey.of(username, attributes));
+        LOG.debug("[User Cache] {} for user: `{}` and auth_config: `{}`.", user == null ? "Miss" : "Hit", username, authConfig.getId());
+        return user;
+    }
+
+    public void put(AuthConfig authConfig, String username, User user) {
+        put(authConfig, username, UserAttributes.ALL, user);
+    }
+
+    public void put(AuthConfig authConfig, String username, String[] attributes, User user) {
+        final Cache<UserKey, User> cache = cacheFor(authConfig);
+        if (cache == null || username == null || user == null) {
+            return;
+        }
+
+        cache.put(UserKey.of(username, attributes), user);
+    }
+
+    public CacheStats stats(AuthConfig authConfig) {
+        final Cache<UserKey, User> cache = CACHES.existingCacheFor(authConfig);
+        return cache == null ? CacheStats.empty() : cache.stats();
+    }
+
+    public void invalidate(AuthConfig authConfig, String username) {
+        final Cache<UserKey, User> cache = CACHES.existingCacheFor(authConfig);
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.username().equals(username));
+        }
+    }
+
+    /**
+     * Drops the users read from the entry with the given dn.
+     *
+     * @return whether any user was dropped
+     */
+    public boolean invalidateEntry(AuthConfig authConfig, Dn dn) {
+        final Cache<UserKey, User> cache = CACHES.existingCacheFor(authConfig);
+        return cache != null && cache.asMap().values().removeIf(user -> AuthConfigCaches.isEntry(user.getEntry(), dn));
+    }
+
+    public void invalidateAll(AuthConfig authConfig) {
+        CACHES.invalidateAll(authConfig);
+    }
+
+    private Cache<UserKey, User> cacheFor(AuthConfig authConfig) {
+        final LdapConfiguration configuration = authConfig.getConfiguration();
+        if (configuration == null) {
+            return null;
+        }
+
+        return CACHES.cacheFor(authConfig, configuration.getUserCacheTtl(), configuration.getUserCacheSize());
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Identifies a user entry looked up with a given set of attributes, so that an entry fetched with fewer attributes
+ * is never handed out where more are needed.
+ */
+record UserKey(String username, List<String> attributes) {
+    static UserKey of(String username, String[] attributes) {
+        return new UserKey(username, Stream.of(attributes).map(attribute -> attribute.toLowerCase(Locale.ROOT)).sorted().distinct().collect(Collectors.toList()));
+    }
+}
@@ -43,7 +43,7 @@ public class GetUserRolesExecutor implements RequestExecutor {
 
     @Override
     public GoPluginApiResponse execute() throws Exception {
-        AuthenticationResponse authenticationResponse = authenticator.searchUserWithAuthConfig(request.getUsername(), request.getAuthConfig());
+        AuthenticationResponse authenticationResponse = authenticator.searchUserWithAuthConfig(request.getUsername(), request.getAuthConfig(), request.getRoleConfigs());
 
         Set<String> userRoles = Collections.emptySet();
         if (authenticationResponse != null) {
@@ -23,6 +23,8 @@ import com.thoughtworks.gocd.authorization.ldap.LdapAuthenticator;
 import com.thoughtworks.gocd.authorization.ldap.model.AuthenticationResponse;
 import com.thoughtworks.gocd.authorization.ldap.request.IsValidUserRequest;
 
+import java.util.Collections;
+
 import static com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse.SUCCESS_RESPONSE_CODE;
 import static com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse.INTERNAL_ERROR;
 
@@ -37,7 +39,7 @@ public class IsValidUserExecutor implements RequestExecutor {
 
     @Override
     public GoPluginApiResponse execute() throws Exception {
-        AuthenticationResponse authenticationResponse = authenticator.searchUserWithAuthConfig(request.getUsername(), request.getAuthConfig());
+        AuthenticationResponse authenticationResponse = authenticator.searchUserWithAuthConfig(request.getUsername(), request.getAuthConfig(), Collections.emptyList());
 
         if (authenticationResponse != null) {
             return new DefaultGoPluginApiResponse(SUCCESS_RESPONSE_CODE);
@@ -21,6 +21,7 @@ import com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.mapper.UserAttributes;
 import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
 import com.thoughtworks.gocd.authorization.ldap.model.User;
@@ -58,15 +59,24 @@ public class SearchUserExecutor implements RequestExecutor {
         for (AuthConfig authConfig : authConfigs) {
             try {
                 final LdapConfiguration configuration = authConfig.getConfiguration();
-                final Ldap ldap = ldapFactory.ldapForConfiguration(configuration);
+                final Ldap ldap = ldapFactory.ldapForAuthConfig(authConfig);
                 String userSearchFilter = configuration.getUserSearchFilter();
 
                 LOG.info("[User Search] Looking up for users matching search_term: `{}`" +
                         " using the search_filter: `{}` and auth_config: `{}`", searchTerm, userSearchFilter, authConfig.getId());
 
-                List<User> users = ldap.search(userSearchFilter, new String[]{searchTerm}, configuration.getUserMapper(), 100);
-                allUsers.addAll(users);
-                if (users.size() == 100)
+                final String[] filterArgs = {searchTerm};
+                final String[] attributes = UserAttributes.forUserMapping(configuration);
+                final int limit = configuration.getSearchResultLimit();
+                final int found;
+                if (configuration.getSearchPageSize() > 0) {
+                    found = ldap.searchPaged(userSearchFilter, filterArgs, attributes, configuration.getUserMapper(), limit, configuration.getSearchPageSize(), allUsers::add);
+                } else {
+                    List<User> users = ldap.search(userSearchFilter, filterArgs, attributes, configuration.getUserMapper(), limit);
+                    allUsers.addAll(users);
+                    found = users.size();
+                }
+                if (found >= limit)
                     break;
             } catch (Exception e) {
                 LOG.error("[User Search] Failed to search user using auth_config: `{}`", authConfig.getId(), e);
@@ -44,7 +44,7 @@ public class UserAuthenticationExecutor implements RequestExecutor {
 
     @Override
     public GoPluginApiResponse execute() throws Exception {
-        AuthenticationResponse authenticationResponse = authenticator.authenticate(request.getCredentials(), request.getAuthConfigs());
+        AuthenticationResponse authenticationResponse = authenticator.authenticate(request.getCredentials(), request.getAuthConfigs(), request.getRoleConfigs());
 
         Map<String, Object> userMap = new HashMap<>();
         if (authenticationResponse != null) {
@@ -69,9 +69,8 @@ public class VerifyConnectionRequestExecutor implements RequestExecutor {
 
     private ValidationResult verifyConnection() {
         final ValidationResult validationResult = new ValidationResult();
-        Ldap ldap = ldapFactory.ldapForConfiguration(ldapConfiguration);
 
-        try {
+        try (Ldap ldap = ldapFactory.ldapForConfiguration(ldapConfiguration)) {
             ldap.verifyConnection();
         } catch (Exception e) {
             validationResult.addError("", e.getMessage());
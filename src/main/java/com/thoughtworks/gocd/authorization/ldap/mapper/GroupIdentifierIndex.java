@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.mapper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.utils.DnNormalizer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Role configs indexed by the group identifiers they match, per user group membership attribute. Built once per list of
+ * role configs, so that the roles of a user are resolved with a single pass over its group membership values. Group
+ * identifiers of role configs which normalize them are indexed by their normalized DN, all others as they are.
+ */
+class GroupIdentifierIndex {
+    private static final Cache<List<RoleConfig>, GroupIdentifierIndex> INDEXES = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    private final Map<String, Map<String, Set<String>>> rolesByGroupIdentifier;
+    private final Map<String, Map<String, Set<String>>> rolesByNormalizedGroupIdentifier;
+
+    private GroupIdentifierIndex(List<RoleConfig> roleConfigs) {
+        final Map<String, Map<String, Set<String>>> exact = new HashMap<>();
+        final Map<String, Map<String, Set<String>>> normalized = new HashMap<>();
+        for (RoleConfig roleConfig : roleConfigs) {
+            final RoleConfiguration roleConfiguration = roleConfig.getRoleConfiguration();
+            if (roleConfiguration == null || !roleConfiguration.hasGroupMembershipAttributes()) {
+                continue;
+            }
+
+            final boolean normalize = roleConfiguration.normalizeGroupIdentifiers();
+            final Map<String, Set<String>> rolesByIdentifier = (normalize ? normalized : exact)
+                    .computeIfAbsent(roleConfiguration.getUserGroupMembershipAttribute(), attribute -> new HashMap<>());
+            for (String groupIdentifier : roleConfiguration.getGroupIdentifiers()) {
+                rolesByIdentifier.computeIfAbsent(normalize ? DnNormalizer.normalize(groupIdentifier) : groupIdentifier, identifier -> new HashSet<>()).add(roleConfig.getName());
+            }
+        }
+
+        this.rolesByGroupIdentifier = immutableCopyOf(exact);
+        this.rolesByNormalizedGroupIdentifier = immutableCopyOf(normalized);
+    }
+
+    static GroupIdentifierIndex forRoleConfigs(List<RoleConfig> roleConfigs) {
+        return INDEXES.get(List.copyOf(roleConfigs), GroupIdentifierIndex::new);
+    }
+
+    Set<String> groupMembershipAttributes() {
+        final Set<String> attributes = new HashSet<>(rolesByGroupIdentifier.keySet());
+        attributes.addAll(rolesByNormalizedGroupIdentifier.keySet());
+        return attributes;
+    }
+
+    void addRolesFor(String groupMembershipAttribute, String groupIdentifier, Set<String> roles) {
+        if (groupIdentifier == null) {
+            return;
+        }
+
+        final Map<String, Set<String>> rolesByIdentifier = rolesByGroupIdentifier.get(groupMembershipAttribute);
+        if (rolesByIdentifier != null) {
+            roles.addAll(rolesByIdentifier.getOrDefault(groupIdentifier, Collections.emptySet()));
+        }
+
+        final Map<String, Set<String>> rolesByNormalizedIdentifier = rolesByNormalizedGroupIdentifier.get(groupMembershipAttribute);
+        if (rolesByNormalizedIdentifier != null) {
+            roles.addAll(rolesByNormalizedIdentifier.getOrDefault(DnNormalizer.normalize(groupIdentifier), Collections.emptySet()));
+        }
+    }
+
+    private static Map<String, Map<String, Set<String>>> immutableCopyOf(Map<String, Map<String, Set<String>>> index) {
+        index.replaceAll((attribute, rolesByIdentifier) -> {
+            rolesByIdentifier.replaceAll((identifier, roles) -> Set.copyOf(roles));
+            return Map.copyOf(rolesByIdentifier);
+        });
+        return Map.copyOf(index);
+    }
+}
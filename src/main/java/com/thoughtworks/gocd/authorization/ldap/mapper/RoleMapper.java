@@ -17,12 +17,10 @@
 package com.thoughtworks.gocd.authorization.ldap.mapper;
 
 import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
-import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
 import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Value;
 
-import javax.naming.NamingException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -40,46 +38,27 @@ public class RoleMapper {
     }
 
     private Set<String> getUserRoles(Entry entry, List<RoleConfig> roleConfigs) {
+        final GroupIdentifierIndex groupIdentifierIndex = GroupIdentifierIndex.forRoleConfigs(roleConfigs);
         final Set<String> roles = new HashSet<>();
 
-        for (RoleConfig roleConfig : roleConfigs) {
-            RoleConfiguration roleConfiguration = roleConfig.getRoleConfiguration();
-            if (roleConfiguration.hasGroupMembershipAttributes()) {
-                LOG.debug("[Authenticate] Resolving role using role_config: `{}` and user_member_of_attribute: `{}`",
-                        roleConfig.getName(), roleConfiguration.getUserGroupMembershipAttribute());
-                try {
-                    final Attribute memberOfAttribute = entry.get(roleConfiguration.getUserGroupMembershipAttribute());
+        for (String groupMembershipAttribute : groupIdentifierIndex.groupMembershipAttributes()) {
+            LOG.debug("[Authenticate] Resolving roles using user_member_of_attribute: `{}`", groupMembershipAttribute);
+            try {
+                final Attribute memberOfAttribute = entry.get(groupMembershipAttribute);
 
-                    if (memberOfAttribute == null) {
-                        LOG.info("[Authenticate] Missing User Member of Attribute: `{}` on user entry",
-                                roleConfiguration.getUserGroupMembershipAttribute());
-                        continue;
-                    }
+                if (memberOfAttribute == null) {
+                    LOG.info("[Authenticate] Missing User Member of Attribute: `{}` on user entry", groupMembershipAttribute);
+                    continue;
+                }
 
-                    if (hasMatchingMembershipAttribute(roleConfig, memberOfAttribute)) {
-                        roles.add(roleConfig.getName());
-                    }
-                } catch (Exception e) {
-                    LOG.error("[Authenticate] Error mapping roles using User Member of Attribute: `{}`",
-                            roleConfiguration.getUserGroupMembershipAttribute(), e);
+                for (Value value : memberOfAttribute) {
+                    groupIdentifierIndex.addRolesFor(groupMembershipAttribute, value.getString(), roles);
                 }
+            } catch (Exception e) {
+                LOG.error("[Authenticate] Error mapping roles using User Member of Attribute: `{}`", groupMembershipAttribute, e);
             }
         }
 
         return roles;
     }
-
-    private boolean hasMatchingMembershipAttribute(RoleConfig roleConfig, Attribute attribute) throws NamingException {
-        final List<String> groupIdentifiers = roleConfig.getRoleConfiguration().getGroupIdentifiers();
-
-        for (Value value : attribute) {
-            if (groupIdentifiers.contains(value.getString())) {
-                return true;
-            }
-        }
-
-        LOG.debug("[Authenticate] Attribute {} is not part of Group Identifiers {} defined in role {}.", attribute, groupIdentifiers, roleConfig.getName());
-
-        return false;
-    }
 }
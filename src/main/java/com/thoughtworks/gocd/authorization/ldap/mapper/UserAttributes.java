@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.mapper;
+
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Attributes to request when looking up a user, so that the server does not send attributes the plugin never reads.
+ */
+public class UserAttributes {
+    public static final String[] ALL = {"*"};
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(.*?)\\}");
+
+    public static String[] forUserMapping(LdapConfiguration configuration) {
+        return userMappingAttributes(configuration).toArray(new String[0]);
+    }
+
+    public static String[] forAuthConfig(AuthConfig authConfig, List<RoleConfig> roleConfigs) {
+        if (roleConfigs == null) {
+            return ALL;
+        }
+
+        final Set<String> attributes = userMappingAttributes(authConfig.getConfiguration());
+        for (RoleConfig roleConfig : roleConfigs) {
+            if (!authConfig.getId().equals(roleConfig.getAuthConfigId())) {
+                continue;
+            }
+
+            final RoleConfiguration roleConfiguration = roleConfig.getRoleConfiguration();
+            if (roleConfiguration.hasGroupMembershipAttributes()) {
+                attributes.add(roleConfiguration.getUserGroupMembershipAttribute());
+            }
+
+            if (roleConfiguration.hasGroupMembershipFilter()) {
+                final Matcher matcher = PLACEHOLDER.matcher(roleConfiguration.getGroupMembershipFilter());
+                while (matcher.find()) {
+                    if (!matcher.group(1).equalsIgnoreCase("dn")) {
+                        attributes.add(matcher.group(1));
+                    }
+                }
+            }
+        }
+        return attributes.toArray(new String[0]);
+    }
+
+    private static Set<String> userMappingAttributes(LdapConfiguration configuration) {
+        final Set<String> attributes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Stream.of(configuration.getUserNameAttribute(), configuration.getDisplayNameAttribute(), configuration.getEmailAttribute())
+                .filter(StringUtils::isNotBlank)
+                .forEach(attributes::add);
+        return attributes;
+    }
+}
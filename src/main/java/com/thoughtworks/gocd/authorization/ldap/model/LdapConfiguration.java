@@ -18,6 +18,7 @@ package com.thoughtworks.gocd.authorization.ldap.model;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.thoughtworks.gocd.authorization.ldap.annotation.FieldType;
 import com.thoughtworks.gocd.authorization.ldap.annotation.MetadataHelper;
 import com.thoughtworks.gocd.authorization.ldap.annotation.ProfileField;
 import com.thoughtworks.gocd.authorization.ldap.mapper.UserMapper;
@@ -97,6 +98,131 @@ public class LdapConfiguration {
     @ProfileField(key = "SearchTimeout", required = false, secure = false)
     private String searchTimeout = "5";
 
+    @Expose
+    @SerializedName("PoolMaxTotal")
+    @ProfileField(key = "PoolMaxTotal", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String poolMaxTotal;
+
+    @Expose
+    @SerializedName("PoolMaxIdle")
+    @ProfileField(key = "PoolMaxIdle", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String poolMaxIdle;
+
+    @Expose
+    @SerializedName("PoolMinIdle")
+    @ProfileField(key = "PoolMinIdle", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String poolMinIdle;
+
+    @Expose
+    @SerializedName("PoolMaxWait")
+    @ProfileField(key = "PoolMaxWait", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String poolMaxWait;
+
+    @Expose
+    @SerializedName("PoolEvictionInterval")
+    @ProfileField(key = "PoolEvictionInterval", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String poolEvictionInterval;
+
+    @Expose
+    @SerializedName("PoolTestWhileIdle")
+    @ProfileField(key = "PoolTestWhileIdle", required = false, secure = false)
+    private boolean poolTestWhileIdle = false;
+
+    @Expose
+    @SerializedName("PoolWarmUpConnections")
+    @ProfileField(key = "PoolWarmUpConnections", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String poolWarmUpConnections;
+
+    @Expose
+    @SerializedName("AuthenticationCacheTtl")
+    @ProfileField(key = "AuthenticationCacheTtl", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String authenticationCacheTtl;
+
+    @Expose
+    @SerializedName("AuthenticationCacheSize")
+    @ProfileField(key = "AuthenticationCacheSize", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String authenticationCacheSize;
+
+    @Expose
+    @SerializedName("UserCacheTtl")
+    @ProfileField(key = "UserCacheTtl", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String userCacheTtl;
+
+    @Expose
+    @SerializedName("UserCacheSize")
+    @ProfileField(key = "UserCacheSize", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String userCacheSize;
+
+    @Expose
+    @SerializedName("RoleCacheTtl")
+    @ProfileField(key = "RoleCacheTtl", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String roleCacheTtl;
+
+    @Expose
+    @SerializedName("BatchGroupMembershipSearch")
+    @ProfileField(key = "BatchGroupMembershipSearch", required = false, secure = false)
+    private boolean batchGroupMembershipSearch = false;
+
+    @Expose
+    @SerializedName("GroupSearchParallelism")
+    @ProfileField(key = "GroupSearchParallelism", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String groupSearchParallelism;
+
+    @Expose
+    @SerializedName("GroupSearchDeadline")
+    @ProfileField(key = "GroupSearchDeadline", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String groupSearchDeadline;
+
+    @Expose
+    @SerializedName("SearchBasesInParallel")
+    @ProfileField(key = "SearchBasesInParallel", required = false, secure = false)
+    private boolean searchBasesInParallel = false;
+
+    @Expose
+    @SerializedName("ParallelAuthentication")
+    @ProfileField(key = "ParallelAuthentication", required = false, secure = false)
+    private boolean parallelAuthentication = false;
+
+    @Expose
+    @SerializedName("SearchPageSize")
+    @ProfileField(key = "SearchPageSize", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String searchPageSize;
+
+    @Expose
+    @SerializedName("SearchResultLimit")
+    @ProfileField(key = "SearchResultLimit", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String searchResultLimit;
+
+    @Expose
+    @SerializedName("GroupGraphCacheTtl")
+    @ProfileField(key = "GroupGraphCacheTtl", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String groupGraphCacheTtl;
+
+    @Expose
+    @SerializedName("GroupMembershipGraphRefreshInterval")
+    @ProfileField(key = "GroupMembershipGraphRefreshInterval", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String groupMembershipGraphRefreshInterval;
+
+    @Expose
+    @SerializedName("GroupMembershipGraphMaxStaleness")
+    @ProfileField(key = "GroupMembershipGraphMaxStaleness", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String groupMembershipGraphMaxStaleness;
+
+    @Expose
+    @SerializedName("ChangeTrackingBase")
+    @ProfileField(key = "ChangeTrackingBase", required = false, secure = false)
+    private String changeTrackingBase;
+
+    @Expose
+    @SerializedName("UnknownUserCacheTtl")
+    @ProfileField(key = "UnknownUserCacheTtl", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String unknownUserCacheTtl;
+
+    @Expose
+    @SerializedName("UnknownUserCacheSize")
+    @ProfileField(key = "UnknownUserCacheSize", required = false, secure = false, type = FieldType.POSITIVE_DECIMAL)
+    private String unknownUserCacheSize;
+
     public static LdapConfiguration fromJSON(String json) {
         return GSON.fromJson(json, LdapConfiguration.class);
     }
@@ -174,6 +300,119 @@ public class LdapConfiguration {
         return Integer.parseInt(timeout);
     }
 
+    public int getPoolMaxTotal() {
+        return toInt(poolMaxTotal, 250);
+    }
+
+    public int getPoolMaxIdle() {
+        return toInt(poolMaxIdle, Math.min(50, getPoolMaxTotal()));
+    }
+
+    public int getPoolMinIdle() {
+        return toInt(poolMinIdle, 0);
+    }
+
+    public int getPoolMaxWait() {
+        return toInt(poolMaxWait, -1);
+    }
+
+    public int getPoolEvictionInterval() {
+        return toInt(poolEvictionInterval, -1);
+    }
+
+    public boolean poolTestWhileIdle() {
+        return poolTestWhileIdle;
+    }
+
+    public int getPoolWarmUpConnections() {
+        return toInt(poolWarmUpConnections, 0);
+    }
+
+    public int getAuthenticationCacheTtl() {
+        return toInt(authenticationCacheTtl, 0);
+    }
+
+    public int getAuthenticationCacheSize() {
+        return toInt(authenticationCacheSize, 1000);
+    }
+
+    public int getUserCacheTtl() {
+        return toInt(userCacheTtl, 0);
+    }
+
+    public int getUserCacheSize() {
+        return toInt(userCacheSize, 10000);
+    }
+
+    public int getRoleCacheTtl() {
+        return toInt(roleCacheTtl, 0);
+    }
+
+    public boolean batchGroupMembershipSearch() {
+        return batchGroupMembershipSearch;
+    }
+
+    public int getGroupSearchParallelism() {
+        return toInt(groupSearchParallelism, 1);
+    }
+
+    public int getGroupSearchDeadline() {
+        return toInt(groupSearchDeadline, 30);
+    }
+
+    public boolean searchBasesInParallel() {
+        return searchBasesInParallel;
+    }
+
+    public boolean parallelAuthentication() {
+        return parallelAuthentication;
+    }
+
+    public int getSearchPageSize() {
+        return toInt(searchPageSize, 0);
+    }
+
+    public int getSearchResultLimit() {
+        return toInt(searchResultLimit, 100);
+    }
+
+    public int getGroupGraphCacheTtl() {
+        return toInt(groupGraphCacheTtl, 0);
+    }
+
+    public int getGroupMembershipGraphRefreshInterval() {
+        return toInt(groupMembershipGraphRefreshInterval, 0);
+    }
+
+    public int getGroupMembershipGraphMaxStaleness() {
+        return toInt(groupMembershipGraphMaxStaleness, 2 * getGroupMembershipGraphRefreshInterval());
+    }
+
+    public String getChangeTrackingBase() {
+        return trimToNull(changeTrackingBase);
+    }
+
+    public int getUnknownUserCacheTtl() {
+        return toInt(unknownUserCacheTtl, 0);
+    }
+
+    public int getUnknownUserCacheSize() {
+        return toInt(unknownUserCacheSize, 10000);
+    }
+
+    private static int toInt(String value, int defaultValue) {
+        final String stripped = StringUtils.stripToEmpty(value);
+        if (StringUtils.isBlank(stripped)) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(stripped);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -197,7 +436,45 @@ public class LdapConfiguration {
         if (emailAttribute != null ? !emailAttribute.equals(that.emailAttribute) : that.emailAttribute != null)
             return false;
         if (certificate != null ? !certificate.equals(that.certificate) : that.certificate != null) return false;
-        return searchTimeout != null ? searchTimeout.equals(that.searchTimeout) : that.searchTimeout == null;
+        if (searchTimeout != null ? !searchTimeout.equals(that.searchTimeout) : that.searchTimeout != null)
+            return false;
+        if (poolMaxTotal != null ? !poolMaxTotal.equals(that.poolMaxTotal) : that.poolMaxTotal != null) return false;
+        if (poolMaxIdle != null ? !poolMaxIdle.equals(that.poolMaxIdle) : that.poolMaxIdle != null) return false;
+        if (poolMinIdle != null ? !poolMinIdle.equals(that.poolMinIdle) : that.poolMinIdle != null) return false;
+        if (poolMaxWait != null ? !poolMaxWait.equals(that.poolMaxWait) : that.poolMaxWait != null) return false;
+        if (poolEvictionInterval != null ? !poolEvictionInterval.equals(that.poolEvictionInterval) : that.poolEvictionInterval != null)
+            return false;
+        if (poolTestWhileIdle != that.poolTestWhileIdle) return false;
+        if (poolWarmUpConnections != null ? !poolWarmUpConnections.equals(that.poolWarmUpConnections) : that.poolWarmUpConnections != null)
+            return false;
+        if (authenticationCacheTtl != null ? !authenticationCacheTtl.equals(that.authenticationCacheTtl) : that.authenticationCacheTtl != null)
+            return false;
+        if (authenticationCacheSize != null ? !authenticationCacheSize.equals(that.authenticationCacheSize) : that.authenticationCacheSize != null)
+            return false;
+        if (userCacheTtl != null ? !userCacheTtl.equals(that.userCacheTtl) : that.userCacheTtl != null) return false;
+        if (userCacheSize != null ? !userCacheSize.equals(that.userCacheSize) : that.userCacheSize != null) return false;
+        if (roleCacheTtl != null ? !roleCacheTtl.equals(that.roleCacheTtl) : that.roleCacheTtl != null) return false;
+        if (batchGroupMembershipSearch != that.batchGroupMembershipSearch) return false;
+        if (groupSearchParallelism != null ? !groupSearchParallelism.equals(that.groupSearchParallelism) : that.groupSearchParallelism != null)
+            return false;
+        if (groupSearchDeadline != null ? !groupSearchDeadline.equals(that.groupSearchDeadline) : that.groupSearchDeadline != null)
+            return false;
+        if (searchBasesInParallel != that.searchBasesInParallel) return false;
+        if (parallelAuthentication != that.parallelAuthentication) return false;
+        if (searchPageSize != null ? !searchPageSize.equals(that.searchPageSize) : that.searchPageSize != null) return false;
+        if (searchResultLimit != null ? !searchResultLimit.equals(that.searchResultLimit) : that.searchResultLimit != null)
+            return false;
+        if (groupGraphCacheTtl != null ? !groupGraphCacheTtl.equals(that.groupGraphCacheTtl) : that.groupGraphCacheTtl != null)
+            return false;
+        if (groupMembershipGraphRefreshInterval != null ? !groupMembershipGraphRefreshInterval.equals(that.groupMembershipGraphRefreshInterval) : that.groupMembershipGraphRefreshInterval != null)
+            return false;
+        if (groupMembershipGraphMaxStaleness != null ? !groupMembershipGraphMaxStaleness.equals(that.groupMembershipGraphMaxStaleness) : that.groupMembershipGraphMaxStaleness != null)
+            return false;
+        if (changeTrackingBase != null ? !changeTrackingBase.equals(that.changeTrackingBase) : that.changeTrackingBase != null)
+            return false;
+        if (unknownUserCacheTtl != null ? !unknownUserCacheTtl.equals(that.unknownUserCacheTtl) : that.unknownUserCacheTtl != null)
+            return false;
+        return unknownUserCacheSize != null ? unknownUserCacheSize.equals(that.unknownUserCacheSize) : that.unknownUserCacheSize == null;
     }
 
     @Override
@@ -214,6 +491,31 @@ public class LdapConfiguration {
         result = 31 * result + (certificate != null ? certificate.hashCode() : 0);
         result = 31 * result + (startTLS ? 1 : 0);
         result = 31 * result + (searchTimeout != null ? searchTimeout.hashCode() : 0);
+        result = 31 * result + (poolMaxTotal != null ? poolMaxTotal.hashCode() : 0);
+        result = 31 * result + (poolMaxIdle != null ? poolMaxIdle.hashCode() : 0);
+        result = 31 * result + (poolMinIdle != null ? poolMinIdle.hashCode() : 0);
+        result = 31 * result + (poolMaxWait != null ? poolMaxWait.hashCode() : 0);
+        result = 31 * result + (poolEvictionInterval != null ? poolEvictionInterval.hashCode() : 0);
+        result = 31 * result + (poolTestWhileIdle ? 1 : 0);
+        result = 31 * result + (poolWarmUpConnections != null ? poolWarmUpConnections.hashCode() : 0);
+        result = 31 * result + (authenticationCacheTtl != null ? authenticationCacheTtl.hashCode() : 0);
+        result = 31 * result + (authenticationCacheSize != null ? authenticationCacheSize.hashCode() : 0);
+        result = 31 * result + (userCacheTtl != null ? userCacheTtl.hashCode() : 0);
+        result = 31 * result + (userCacheSize != null ? userCacheSize.hashCode() : 0);
+        result = 31 * result + (roleCacheTtl != null ? roleCacheTtl.hashCode() : 0);
+        result = 31 * result + (batchGroupMembershipSearch ? 1 : 0);
+        result = 31 * result + (groupSearchParallelism != null ? groupSearchParallelism.hashCode() : 0);
+        result = 31 * result + (groupSearchDeadline != null ? groupSearchDeadline.hashCode() : 0);
+        result = 31 * result + (searchBasesInParallel ? 1 : 0);
+        result = 31 * result + (parallelAuthentication ? 1 : 0);
+        result = 31 * result + (searchPageSize != null ? searchPageSize.hashCode() : 0);
+        result = 31 * result + (searchResultLimit != null ? searchResultLimit.hashCode() : 0);
+        result = 31 * result + (groupGraphCacheTtl != null ? groupGraphCacheTtl.hashCode() : 0);
+        result = 31 * result + (groupMembershipGraphRefreshInterval != null ? groupMembershipGraphRefreshInterval.hashCode() : 0);
+        result = 31 * result + (groupMembershipGraphMaxStaleness != null ? groupMembershipGraphMaxStaleness.hashCode() : 0);
+        result = 31 * result + (changeTrackingBase != null ? changeTrackingBase.hashCode() : 0);
+        result = 31 * result + (unknownUserCacheTtl != null ? unknownUserCacheTtl.hashCode() : 0);
+        result = 31 * result + (unknownUserCacheSize != null ? unknownUserCacheSize.hashCode() : 0);
         return result;
     }
 }
@@ -31,6 +31,8 @@ public class RoleConfiguration {
     public static final String USER_GROUP_MEMBERSHIP_ATTRIBUTE = "UserGroupMembershipAttribute";
     public static final String GROUP_IDENTIFIERS = "GroupIdentifiers";
     public static final String GROUP_SEARCH_BASES = "GroupSearchBases";
+    public static final String RESOLVE_NESTED_GROUPS = "ResolveNestedGroups";
+    public static final String NORMALIZE_GROUP_IDENTIFIERS = "NormalizeGroupIdentifiers";
 
     @Expose
     @SerializedName(USER_GROUP_MEMBERSHIP_ATTRIBUTE)
@@ -52,6 +54,16 @@ public class RoleConfiguration {
     @ProfileField(key = GROUP_MEMBERSHIP_FILTER, required = false, secure = false)
     private String groupMembershipFilter;
 
+    @Expose
+    @SerializedName(RESOLVE_NESTED_GROUPS)
+    @ProfileField(key = RESOLVE_NESTED_GROUPS, required = false, secure = false)
+    private boolean resolveNestedGroups = false;
+
+    @Expose
+    @SerializedName(NORMALIZE_GROUP_IDENTIFIERS)
+    @ProfileField(key = NORMALIZE_GROUP_IDENTIFIERS, required = false, secure = false)
+    private boolean normalizeGroupIdentifiers = false;
+
     public String getUserGroupMembershipAttribute() {
         return userGroupMembershipAttribute;
     }
@@ -76,6 +88,14 @@ public class RoleConfiguration {
         return StringUtils.isNoneBlank(getGroupMembershipFilter());
     }
 
+    public boolean resolveNestedGroups() {
+        return resolveNestedGroups;
+    }
+
+    public boolean normalizeGroupIdentifiers() {
+        return normalizeGroupIdentifiers;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -89,7 +109,11 @@ public class RoleConfiguration {
             return false;
         if (groupMembershipFilter != null ? !groupMembershipFilter.equals(that.groupMembershipFilter) : that.groupMembershipFilter != null)
             return false;
-        return groupSearchBases != null ? groupSearchBases.equals(that.groupSearchBases) : that.groupSearchBases == null;
+        if (groupSearchBases != null ? !groupSearchBases.equals(that.groupSearchBases) : that.groupSearchBases != null)
+            return false;
+        if (resolveNestedGroups != that.resolveNestedGroups)
+            return false;
+        return normalizeGroupIdentifiers == that.normalizeGroupIdentifiers;
     }
 
     @Override
@@ -98,6 +122,8 @@ public class RoleConfiguration {
         result = 31 * result + (groupIdentifiers != null ? groupIdentifiers.hashCode() : 0);
         result = 31 * result + (groupMembershipFilter != null ? groupMembershipFilter.hashCode() : 0);
         result = 31 * result + (groupSearchBases != null ? groupSearchBases.hashCode() : 0);
+        result = 31 * result + (resolveNestedGroups ? 1 : 0);
+        result = 31 * result + (normalizeGroupIdentifiers ? 1 : 0);
         return result;
     }
 
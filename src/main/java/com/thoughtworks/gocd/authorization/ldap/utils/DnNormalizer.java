@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Normalizes DNs for comparison, so that DNs differing only in case or in the whitespace around their separators are
+ * equal. The group DNs of users repeat from login to login, so the normalized forms are cached.
+ */
+public class DnNormalizer {
+    private static final Cache<String, String> NORMALIZED_DNS = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    private DnNormalizer() {
+    }
+
+    /**
+     * @return the normalized form of the DN, or the lowercased value when it is not a valid DN
+     */
+    public static String normalize(String dn) {
+        return NORMALIZED_DNS.get(dn, DnNormalizer::doNormalize);
+    }
+
+    private static String doNormalize(String dn) {
+        try {
+            return new Dn(dn).getNormName().toLowerCase(Locale.ROOT);
+        } catch (LdapInvalidDnException e) {
+            return dn.toLowerCase(Locale.ROOT);
+        }
+    }
+}
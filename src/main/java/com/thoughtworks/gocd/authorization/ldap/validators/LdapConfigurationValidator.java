@@ -33,6 +33,7 @@ public class LdapConfigurationValidator {
         validatables.add(new CertificateValidator());
         validatables.add(new StartTLSValidator());
         validatables.add(new URLValidator());
+        validatables.add(new PoolConfigurationValidator());
     }
 
     public ValidationResult validate(Map<String, String> properties) {
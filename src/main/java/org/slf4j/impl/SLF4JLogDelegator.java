@@ -16,165 +16,232 @@
 
 package org.slf4j.impl;
 
+import com.thoughtworks.gocd.authorization.ldap.utils.Util;
+import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MarkerIgnoringBase;
+import org.slf4j.helpers.MessageFormatter;
 
 import java.io.Serializable;
 
 import static com.thoughtworks.gocd.authorization.ldap.LdapPlugin.LOG;
 
+/**
+ * Passes the log statements of the libraries used by the plugin on to the GoCD plugin logger. Statements below the
+ * level the plugin logs at are dropped before their message is formatted.
+ */
 public class SLF4JLogDelegator extends MarkerIgnoringBase implements Serializable {
+    private final LogLevel threshold;
+
+    public SLF4JLogDelegator() {
+        this(pluginLogLevel());
+    }
+
+    SLF4JLogDelegator(LogLevel threshold) {
+        this.threshold = threshold;
+    }
+
     @Override
     public boolean isTraceEnabled() {
-        return true;
+        return threshold.compareTo(LogLevel.TRACE) <= 0;
     }
 
     @Override
     public void trace(String msg) {
-        doLog(msg, LogLevel.TRACE);
+        if (isTraceEnabled()) {
+            doLog(msg, LogLevel.TRACE, null);
+        }
     }
 
     @Override
     public void trace(String format, Object arg) {
-        doLog(String.format(format, arg), LogLevel.TRACE);
+        if (isTraceEnabled()) {
+            doLog(MessageFormatter.format(format, arg), LogLevel.TRACE);
+        }
     }
 
     @Override
     public void trace(String format, Object arg1, Object arg2) {
-        doLog(String.format(format, arg1, arg2), LogLevel.TRACE);
+        if (isTraceEnabled()) {
+            doLog(MessageFormatter.format(format, arg1, arg2), LogLevel.TRACE);
+        }
     }
 
     @Override
     public void trace(String format, Object... arguments) {
-        doLog(String.format(format, arguments), LogLevel.TRACE);
+        if (isTraceEnabled()) {
+            doLog(MessageFormatter.arrayFormat(format, arguments), LogLevel.TRACE);
+        }
     }
 
     @Override
     public void trace(String msg, Throwable t) {
-        doLog(msg, LogLevel.TRACE, t);
+        if (isTraceEnabled()) {
+            doLog(msg, LogLevel.TRACE, t);
+        }
     }
 
     @Override
     public boolean isDebugEnabled() {
-        return true;
+        return threshold.compareTo(LogLevel.DEBUG) <= 0;
     }
 
     @Override
     public void debug(String msg) {
-        doLog(msg, LogLevel.DEBUG);
+        if (isDebugEnabled()) {
+            doLog(msg, LogLevel.DEBUG, null);
+        }
     }
 
     @Override
     public void debug(String format, Object arg) {
-        doLog(String.format(format, arg), LogLevel.DEBUG);
+        if (isDebugEnabled()) {
+            doLog(MessageFormatter.format(format, arg), LogLevel.DEBUG);
+        }
     }
 
     @Override
     public void debug(String format, Object arg1, Object arg2) {
-        doLog(String.format(format, arg1, arg2), LogLevel.DEBUG);
+        if (isDebugEnabled()) {
+            doLog(MessageFormatter.format(format, arg1, arg2), LogLevel.DEBUG);
+        }
     }
 
     @Override
     public void debug(String format, Object... arguments) {
-        doLog(String.format(format, arguments), LogLevel.DEBUG);
+        if (isDebugEnabled()) {
+            doLog(MessageFormatter.arrayFormat(format, arguments), LogLevel.DEBUG);
+        }
     }
 
     @Override
     public void debug(String msg, Throwable t) {
-        doLog(msg, LogLevel.DEBUG, t);
+        if (isDebugEnabled()) {
+            doLog(msg, LogLevel.DEBUG, t);
+        }
     }
 
     @Override
     public boolean isInfoEnabled() {
-        return true;
+        return threshold.compareTo(LogLevel.INFO) <= 0;
     }
 
     @Override
     public void info(String msg) {
-        doLog(msg, LogLevel.INFO);
+        if (isInfoEnabled()) {
+            doLog(msg, LogLevel.INFO, null);
+        }
     }
 
     @Override
     public void info(String format, Object arg) {
-        doLog(String.format(format, arg), LogLevel.INFO);
+        if (isInfoEnabled()) {
+            doLog(MessageFormatter.format(format, arg), LogLevel.INFO);
+        }
     }
 
     @Override
     public void info(String format, Object arg1, Object arg2) {
-        doLog(String.format(format, arg1, arg2), LogLevel.INFO);
+        if (isInfoEnabled()) {
+            doLog(MessageFormatter.format(format, arg1, arg2), LogLevel.INFO);
+        }
     }
 
     @Override
     public void info(String format, Object... arguments) {
-        doLog(String.format(format, arguments), LogLevel.INFO);
+        if (isInfoEnabled()) {
+            doLog(MessageFormatter.arrayFormat(format, arguments), LogLevel.INFO);
+        }
     }
 
     @Override
     public void info(String msg, Throwable t) {
-        doLog(msg, LogLevel.INFO, t);
+        if (isInfoEnabled()) {
+            doLog(msg, LogLevel.INFO, t);
+        }
     }
 
     @Override
     public boolean isWarnEnabled() {
-        return true;
+        return threshold.compareTo(LogLevel.WARN) <= 0;
     }
 
     @Override
     public void warn(String msg) {
-        doLog(msg, LogLevel.WARN);
+        if (isWarnEnabled()) {
+            doLog(msg, LogLevel.WARN, null);
+        }
     }
 
     @Override
     public void warn(String format, Object arg) {
-        doLog(String.format(format, arg), LogLevel.WARN);
+        if (isWarnEnabled()) {
+            doLog(MessageFormatter.format(format, arg), LogLevel.WARN);
+        }
     }
 
     @Override
     public void warn(String format, Object arg1, Object arg2) {
-        doLog(String.format(format, arg1, arg2), LogLevel.WARN);
+        if (isWarnEnabled()) {
+            doLog(MessageFormatter.format(format, arg1, arg2), LogLevel.WARN);
+        }
     }
 
     @Override
     public void warn(String format, Object... arguments) {
-        doLog(String.format(format, arguments), LogLevel.WARN);
+        if (isWarnEnabled()) {
+            doLog(MessageFormatter.arrayFormat(format, arguments), LogLevel.WARN);
+        }
     }
 
     @Override
     public void warn(String msg, Throwable t) {
-        doLog(msg, LogLevel.WARN, t);
+        if (isWarnEnabled()) {
+            doLog(msg, LogLevel.WARN, t);
+        }
     }
 
     @Override
     public boolean isErrorEnabled() {
-        return true;
+        return threshold.compareTo(LogLevel.ERROR) <= 0;
     }
 
     @Override
     public void error(String msg) {
-        doLog(msg, LogLevel.ERROR);
+        if (isErrorEnabled()) {
+            doLog(msg, LogLevel.ERROR, null);
+        }
     }
 
     @Override
     public void error(String format, Object arg) {
-        doLog(String.format(format, arg), LogLevel.ERROR);
+        if (isErrorEnabled()) {
+            doLog(MessageFormatter.format(format, arg), LogLevel.ERROR);
+        }
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
-        doLog(String.format(format, arg1, arg2), LogLevel.ERROR);
+        if (isErrorEnabled()) {
+            doLog(MessageFormatter.format(format, arg1, arg2), LogLevel.ERROR);
+        }
     }
 
     @Override
     public void error(String format, Object... arguments) {
-        doLog(String.format(format, arguments), LogLevel.ERROR);
+        if (isErrorEnabled()) {
+            doLog(MessageFormatter.arrayFormat(format, arguments), LogLevel.ERROR);
+        }
     }
 
     @Override
     public void error(String msg, Throwable t) {
-        doLog(msg, LogLevel.ERROR, t);
+        if (isErrorEnabled()) {
+            doLog(msg, LogLevel.ERROR, t);
+        }
     }
 
-    private void doLog(String msg, LogLevel logLevel) {
-        doLog(msg, logLevel, null);
+    private void doLog(FormattingTuple formattingTuple, LogLevel logLevel) {
+        doLog(formattingTuple.getMessage(), logLevel, formattingTuple.getThrowable());
     }
 
     private void doLog(String msg, LogLevel logLevel, Throwable t) {
@@ -197,7 +264,37 @@ public class SLF4JLogDelegator extends MarkerIgnoringBase implements Serializabl
         }
     }
 
-    private enum LogLevel {
-        TRACE, INFO, DEBUG, ERROR, WARN
+    /*
+     * GoCD sets the level of a plugin logger from the `plugin.<plugin-id>.log.level` system property, INFO unless set.
+     */
+    static LogLevel pluginLogLevel() {
+        try {
+            return LogLevel.fromName(System.getProperty("plugin." + Util.pluginId() + ".log.level"));
+        } catch (RuntimeException e) {
+            return LogLevel.INFO;
+        }
+    }
+
+    enum LogLevel {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF;
+
+        /*
+         * Mirrors how logback reads the level, which falls back to DEBUG for names it does not know.
+         */
+        static LogLevel fromName(String name) {
+            if (name == null || name.isBlank()) {
+                return INFO;
+            }
+            if (name.trim().equalsIgnoreCase("ALL")) {
+                return TRACE;
+            }
+
+            for (LogLevel logLevel : values()) {
+                if (logLevel.name().equalsIgnoreCase(name.trim())) {
+                    return logLevel;
+                }
+            }
+            return DEBUG;
+        }
     }
 }
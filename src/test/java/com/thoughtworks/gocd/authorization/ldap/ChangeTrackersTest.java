@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.cache.AuthenticationCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.GroupGraphCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.RoleCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UnknownUserCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UserCache;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ChangeTrackersTest {
+    private final AuthConfig authConfig = new AuthConfig("change-tracking", new LdapConfigurationMother.Builder()
+            .withSearchBases("ou=users,ou=system")
+            .withChangeTrackingBase("ou=system")
+            .build());
+    private final UserCache userCache = mock(UserCache.class);
+    private final AuthenticationCache authenticationCache = mock(AuthenticationCache.class);
+    private final UnknownUserCache unknownUserCache = mock(UnknownUserCache.class);
+    private final RoleCache roleCache = mock(RoleCache.class);
+    private final GroupGraphCache groupGraphCache = mock(GroupGraphCache.class);
+    private final GroupMembershipGraphs groupMembershipGraphs = mock(GroupMembershipGraphs.class);
+    private final ChangeTrackers.CacheInvalidator invalidator = new ChangeTrackers.CacheInvalidator(authConfig, userCache, authenticationCache, unknownUserCache, roleCache, groupGraphCache, groupMembershipGraphs);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldNotTrackChangesWithoutChangeTrackingBase() {
+        final Supplier<Ldap> ldapSupplier = mock(Supplier.class);
+
+        new ChangeTrackers().track(new AuthConfig("no-change-tracking", new LdapConfigurationMother.Builder().build()), ldapSupplier);
+
+        verifyNoInteractions(ldapSupplier);
+    }
+
+    @Test
+    public void shouldInvalidateOnlyTheChangedUserWhenItIsCached() throws Exception {
+        final Dn dn = new Dn("uid=bford,ou=users,ou=system");
+        when(userCache.invalidateEntry(authConfig, dn)).thenReturn(true);
+
+        invalidator.entryChanged(new DefaultEntry(dn));
+
+        verify(authenticationCache).invalidateEntry(authConfig, dn);
+        verify(roleCache).invalidateUser(authConfig, dn);
+        verify(roleCache, never()).invalidateAll(any());
+        verifyNoInteractions(unknownUserCache, groupGraphCache, groupMembershipGraphs);
+    }
+
+    @Test
+    public void shouldInvalidateGroupMembershipsWhenAnEntryBelowAGroupSearchBaseChanges() throws Exception {
+        invalidator.addGroupSearchBases(List.of("ou=groups,ou=system"));
+
+        invalidator.entryChanged(new DefaultEntry("cn=admins,ou=Groups,ou=system"));
+
+        verify(roleCache).invalidateAll(authConfig);
+        verify(groupGraphCache).invalidateAll(authConfig);
+        verify(groupMembershipGraphs).refreshAfterChange(authConfig);
+        verify(userCache, never()).invalidateAll(any());
+        verifyNoInteractions(unknownUserCache);
+    }
+
+    @Test
+    public void shouldInvalidateGroupMembershipsWhenAGroupChanges() throws Exception {
+        invalidator.entryChanged(new DefaultEntry("cn=admins,ou=teams,ou=system", "objectClass: top", "objectClass: groupOfUniqueNames"));
+
+        verify(roleCache).invalidateAll(authConfig);
+        verify(groupGraphCache).invalidateAll(authConfig);
+        verify(groupMembershipGraphs).refreshAfterChange(authConfig);
+    }
+
+    @Test
+    public void shouldInvalidateUnknownUsersWhenAnEntryBelowAUserSearchBaseChanges() throws Exception {
+        invalidator.entryChanged(new DefaultEntry("uid=jdoe,ou=users,ou=system", "objectClass: inetOrgPerson"));
+
+        verify(unknownUserCache).invalidateAll(authConfig);
+        verify(roleCache, never()).invalidateAll(any());
+        verifyNoInteractions(groupGraphCache, groupMembershipGraphs);
+    }
+
+    @Test
+    public void shouldIgnoreChangesToOtherEntries() throws Exception {
+        invalidator.addGroupSearchBases(List.of("ou=groups,ou=system"));
+
+        invalidator.entryChanged(new DefaultEntry("cn=printer,ou=devices,ou=system", "objectClass: device"));
+
+        verify(roleCache, never()).invalidateAll(any());
+        verifyNoInteractions(unknownUserCache, groupGraphCache, groupMembershipGraphs);
+    }
+
+    @Test
+    public void shouldInvalidateEverythingWhenChangesWereMissed() {
+        invalidator.changesMissed();
+
+        verify(userCache).invalidateAll(authConfig);
+        verify(authenticationCache).invalidateAll(authConfig);
+        verify(unknownUserCache).invalidateAll(authConfig);
+        verify(roleCache).invalidateAll(authConfig);
+        verify(groupGraphCache).invalidateAll(authConfig);
+        verify(groupMembershipGraphs).refreshAfterChange(authConfig);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupMembershipFilterTest {
+
+    @Test
+    public void shouldCollectAttributesUsedInFilter() {
+        final GroupMembershipFilter filter = GroupMembershipFilter.parse("(&(objectClass=groupOfNames)(|(member=uid=bford,ou=users)(uniqueMember=uid=bford,ou=users)))");
+
+        assertThat(filter.getAttributes()).containsExactly("member", "objectClass", "uniqueMember");
+    }
+
+    @Test
+    public void shouldNotParseFiltersWhichCannotBeEvaluatedByThePlugin() {
+        assertThat(GroupMembershipFilter.parse("(cn=admin*)")).isNull();
+        assertThat(GroupMembershipFilter.parse("(uidNumber>=1000)")).isNull();
+        assertThat(GroupMembershipFilter.parse("member=uid=bford")).isNull();
+        assertThat(GroupMembershipFilter.parse(null)).isNull();
+    }
+
+    @Test
+    public void shouldLeaveEqualityAssertionsOnCaseExactAttributesToTheServer() throws Exception {
+        assertThat(GroupMembershipFilter.parse("(memberUid=BFord)")).isNull();
+        assertThat(GroupMembershipFilter.parse("(|(member=uid=bford,ou=users)(memberUid=bford))")).isNull();
+        assertThat(GroupMembershipFilter.parse("(memberUid=*)").getAttributes()).containsExactly("memberUid");
+    }
+
+    @Test
+    public void shouldKnowWhetherEntriesWithoutItsAttributesMatch() {
+        assertThat(GroupMembershipFilter.parse("(member=uid=bford,ou=users)").matchesEntriesWithoutAttributes()).isFalse();
+        assertThat(GroupMembershipFilter.parse("(!(member=uid=bford,ou=users))").matchesEntriesWithoutAttributes()).isTrue();
+        assertThat(GroupMembershipFilter.parse("(&(objectClass=groupOfNames)(!(member=uid=bford,ou=users)))").matchesEntriesWithoutAttributes()).isFalse();
+    }
+
+    @Test
+    public void shouldMatchCaseIgnoreValuesIgnoringCaseAndSpacing() throws Exception {
+        final Entry group = new DefaultEntry("cn=admins,ou=groups", "cn: Domain  Admins");
+
+        assertThat(GroupMembershipFilter.parse("(cn=domain admins)").matches(group)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(cn=domain users)").matches(group)).isFalse();
+    }
+
+    @Test
+    public void shouldMatchDnValuesIgnoringCaseAndSpacing() throws Exception {
+        final Entry group = new DefaultEntry("cn=admins,ou=groups", "member: UID=BFord, OU=Users");
+
+        assertThat(GroupMembershipFilter.parse("(member=uid=bford,ou=users)").matches(group)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(member=uid=jdoe,ou=users)").matches(group)).isFalse();
+    }
+
+    @Test
+    public void shouldEvaluateBooleanAndPresenceAssertions() throws Exception {
+        final Entry group = new DefaultEntry("cn=admins,ou=groups", "objectClass: groupOfUniqueNames", "uniqueMember: uid=bford,ou=users", "memberUid: bford");
+
+        assertThat(GroupMembershipFilter.parse("(&(objectClass=groupOfUniqueNames)(uniqueMember=uid=bford,ou=users))").matches(group)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(|(member=uid=bford,ou=users)(uniqueMember=uid=bford,ou=users))").matches(group)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(&(uniqueMember=uid=bford,ou=users)(!(objectClass=groupOfUniqueNames)))").matches(group)).isFalse();
+        assertThat(GroupMembershipFilter.parse("(memberUid=*)").matches(group)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(member=*)").matches(group)).isFalse();
+    }
+}
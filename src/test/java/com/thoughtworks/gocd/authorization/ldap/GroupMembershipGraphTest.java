@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupMembershipGraphTest {
+    private GroupMembershipGraph graph;
+
+    @BeforeEach
+    public void setUp() throws LdapException {
+        graph = GroupMembershipGraph.builder(Set.of("member", "memberUid", "objectClass"))
+                .add(new DefaultEntry("cn=admins,ou=groups,dc=example,dc=com",
+                        "objectClass: groupOfNames",
+                        "member: uid=bford,ou=users,dc=example,dc=com",
+                        "member: uid=jdoe,ou=users,dc=example,dc=com"))
+                .add(new DefaultEntry("cn=developers,ou=groups,dc=example,dc=com",
+                        "objectClass: posixGroup",
+                        "memberUid: jdoe"))
+                .add(new DefaultEntry("ou=groups,dc=example,dc=com",
+                        "objectClass: organizationalUnit"))
+                .build();
+    }
+
+    @Test
+    public void shouldFindGroupsOfAMember() {
+        assertThat(graph.size()).isEqualTo(3);
+        assertThat(graph.groupsWith("member", "uid=bford,ou=users,dc=example,dc=com").stream().mapToObj(graph::group))
+                .containsExactly("cn=admins,ou=groups,dc=example,dc=com");
+        assertThat(graph.groupsWith("memberUid", "jdoe").stream().mapToObj(graph::group))
+                .containsExactly("cn=developers,ou=groups,dc=example,dc=com");
+        assertThat(graph.groupsWith("memberUid", "bford").isEmpty()).isTrue();
+        assertThat(graph.groupsWith("uniqueMember", "bford").isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldCompareValuesWithTheMatchingRuleOfTheirAttribute() {
+        assertThat(graph.groupsWith("objectClass", "GroupOfNames").stream().mapToObj(graph::group))
+                .containsExactly("cn=admins,ou=groups,dc=example,dc=com");
+        assertThat(graph.groupsWith("memberUid", "JDoe").isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldCompareMemberDnsIgnoringCaseAndSpacing() {
+        assertThat(GroupMembershipFilter.parse("(MEMBER=UID=BFord, OU=Users, DC=example, DC=com)").matchesAny(graph)).isTrue();
+    }
+
+    @Test
+    public void shouldEvaluateGroupMembershipFiltersAgainstTheGraph() {
+        assertThat(GroupMembershipFilter.parse("(|(member=uid=bob,ou=users,dc=example,dc=com)(objectClass=posixGroup))").matchesAny(graph)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(&(objectClass=posixGroup)(member=uid=jdoe,ou=users,dc=example,dc=com))").matchesAny(graph)).isFalse();
+        assertThat(GroupMembershipFilter.parse("(&(objectClass=groupOfNames)(member=uid=jdoe,ou=users,dc=example,dc=com))").matchesAny(graph)).isTrue();
+        assertThat(GroupMembershipFilter.parse("(&(memberUid=*)(!(objectClass=posixGroup)))").matchesAny(graph)).isFalse();
+    }
+
+    @Test
+    public void shouldOnlyKnowTheAttributesItWasBuiltWith() {
+        assertThat(graph.hasAttributes(Set.of("MEMBER", "memberuid"))).isTrue();
+        assertThat(graph.hasAttributes(Set.of("member", "uniqueMember"))).isFalse();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.ldap.client.template.EntryMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class GroupMembershipGraphsTest {
+    private final Ldap ldap = mock(Ldap.class);
+    private final LdapFactory ldapFactory = mock(LdapFactory.class);
+    private final GroupMembershipGraphs graphs = new GroupMembershipGraphs(ldapFactory);
+
+    @BeforeEach
+    public void setUp() {
+        when(ldapFactory.ldapForAuthConfig(any())).thenReturn(ldap);
+    }
+
+    @Test
+    public void shouldNotProvideGraphsUnlessEnabled() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("graph-disabled", new LdapConfigurationMother.Builder().build());
+
+        assertThat(graphs.graphFor(authConfig, "ou=groups", Set.of("member"))).isNull();
+        verifyNoInteractions(ldapFactory, ldap);
+    }
+
+    @Test
+    public void shouldScanGroupSearchBaseInTheBackgroundAndServeTheGraph() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("graph-enabled", new LdapConfigurationMother.Builder().withGroupMembershipGraphRefreshInterval(3600).build());
+        final CountDownLatch firstRequestServed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            firstRequestServed.await();
+            invocation.<Consumer<Entry>>getArgument(5).accept(new DefaultEntry("cn=admins,ou=groups", "member: uid=bford,ou=users"));
+            return null;
+        }).when(ldap).scanGroups(eq("ou=groups"), eq("(member=*)"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any(), eq(1000), any());
+
+        assertThat(graphs.graphFor(authConfig, "ou=groups", Set.of("member"))).isNull();
+        firstRequestServed.countDown();
+
+        final GroupMembershipGraph graph = awaitGraph(authConfig, Set.of("member"));
+        assertThat(graph.groupsWith("member", "uid=bford,ou=users").isEmpty()).isFalse();
+        verify(ldap, times(1)).scanGroups(anyString(), anyString(), any(String[].class), any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldOnlyScanEntriesHoldingTheRequiredAttributes() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("graph-scan-filter", new LdapConfigurationMother.Builder().withGroupMembershipGraphRefreshInterval(3600).build());
+
+        awaitGraph(authConfig, Set.of("member", "objectClass"));
+
+        verify(ldap).scanGroups(eq("ou=groups"), eq("(|(member=*)(objectclass=*))"), any(String[].class), any(), anyInt(), any());
+    }
+
+    @Test
+    public void shouldNotServeGraphsLackingRequiredAttributes() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("graph-attributes", new LdapConfigurationMother.Builder().withGroupMembershipGraphRefreshInterval(3600).build());
+        final CountDownLatch rebuildWithNewAttributeChecked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            rebuildWithNewAttributeChecked.await();
+            return null;
+        }).when(ldap).scanGroups(eq("ou=groups"), eq("(|(member=*)(uniquemember=*))"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any(), anyInt(), any());
+
+        awaitGraph(authConfig, Set.of("member"));
+
+        assertThat(graphs.graphFor(authConfig, "ou=groups", Set.of("member", "uniqueMember"))).isNull();
+        rebuildWithNewAttributeChecked.countDown();
+        assertThat(awaitGraph(authConfig, Set.of("member", "uniqueMember")).hasAttributes(Set.of("member", "uniqueMember"))).isTrue();
+    }
+
+    @Test
+    public void shouldScanWithTheLdapCurrentlyProvidedForTheAuthConfig() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("graph-replaced-ldap", new LdapConfigurationMother.Builder().withGroupMembershipGraphRefreshInterval(3600).build());
+        awaitGraph(authConfig, Set.of("member"));
+
+        final Ldap replacement = mock(Ldap.class);
+        when(ldapFactory.ldapForAuthConfig(authConfig)).thenReturn(replacement);
+        awaitGraph(authConfig, Set.of("member", "uniqueMember"));
+
+        verify(ldap, times(1)).scanGroups(anyString(), anyString(), any(String[].class), any(), anyInt(), any());
+        verify(replacement).scanGroups(eq("ou=groups"), eq("(|(member=*)(uniquemember=*))"), any(String[].class), any(), anyInt(), any());
+    }
+
+    private GroupMembershipGraph awaitGraph(AuthConfig authConfig, Set<String> attributes) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            final GroupMembershipGraph graph = graphs.graphFor(authConfig, "ou=groups", attributes);
+            if (graph != null) {
+                return graph;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Group membership graph was not built in time");
+    }
+}
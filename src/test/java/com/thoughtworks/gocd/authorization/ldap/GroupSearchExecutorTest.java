@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupSearchExecutorTest {
+    private final GroupSearchExecutor executor = new GroupSearchExecutor();
+
+    @Test
+    public void shouldReturnMatchingItemsInOriginalOrder() {
+        final List<Integer> matched = executor.filter(List.of(1, 2, 3, 4, 5, 6), i -> i % 2 == 0, 3, 10);
+
+        assertThat(matched).containsExactly(2, 4, 6);
+    }
+
+    @Test
+    public void shouldEvaluateItemsConcurrently() {
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        final List<String> matched = executor.filter(List.of("admin", "view"), role -> {
+            latch.countDown();
+            return await(latch, 5);
+        }, 2, 10);
+
+        assertThat(matched).containsExactly("admin", "view");
+    }
+
+    @Test
+    public void shouldLimitConcurrencyToRequestedParallelism() {
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        executor.filter(List.of("a", "b", "c", "d", "e", "f"), item -> {
+            threads.add(Thread.currentThread().getName());
+            return true;
+        }, 2, 10);
+
+        assertThat(threads.size()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void shouldEvaluateItemsOnCallingThreadWhenParallelismIsOne() {
+        final String callingThread = Thread.currentThread().getName();
+
+        final List<String> matched = executor.filter(List.of("admin", "view"), role -> Thread.currentThread().getName().equals(callingThread), 1, 10);
+
+        assertThat(matched).containsExactly("admin", "view");
+    }
+
+    @Test
+    public void shouldSkipItemsWhichAreNotEvaluatedBeforeDeadline() {
+        final CountDownLatch never = new CountDownLatch(1);
+
+        final List<String> matched = executor.filter(List.of("fast", "slow"), role -> role.equals("fast") || await(never, 5), 2, 1);
+
+        assertThat(matched).containsExactly("fast");
+    }
+
+    private static boolean await(CountDownLatch latch, int seconds) {
+        try {
+            return latch.await(seconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
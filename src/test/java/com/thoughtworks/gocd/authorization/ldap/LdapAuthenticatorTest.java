@@ -18,6 +18,11 @@ package com.thoughtworks.gocd.authorization.ldap;
 
 import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.cache.AuthenticationCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UnknownUserCache;
+import com.thoughtworks.gocd.authorization.ldap.cache.UserCache;
+import com.thoughtworks.gocd.authorization.ldap.exception.UserNotFoundException;
+import com.thoughtworks.gocd.authorization.ldap.mapper.UserAttributes;
 import com.thoughtworks.gocd.authorization.ldap.mapper.UserMapper;
 import com.thoughtworks.gocd.authorization.ldap.model.*;
 import org.apache.directory.api.ldap.model.entry.DefaultEntry;
@@ -26,11 +31,21 @@ import org.apache.directory.ldap.client.template.EntryMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
+import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.roleConfigWith;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -55,7 +70,7 @@ public class LdapAuthenticatorTest {
 
         when(authConfig.getId()).thenReturn("id");
         when(authConfig.getConfiguration()).thenReturn(ldapConfiguration);
-        when(ldapFactory.ldapForConfiguration(ldapConfiguration)).thenReturn(ldap);
+        when(ldapFactory.ldapForAuthConfig(authConfig)).thenReturn(ldap);
     }
 
 
@@ -63,7 +78,7 @@ public class LdapAuthenticatorTest {
     public void authenticate_shouldAuthenticateUserWithLdap() throws Exception {
         ldapAuthenticator.authenticate(credentials, Collections.singletonList(authConfig));
 
-        verify(ldap).authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), ArgumentMatchers.<EntryMapper<Entry>>any());
+        verify(ldap).authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
     }
 
     @Test
@@ -72,7 +87,7 @@ public class LdapAuthenticatorTest {
         final User user = new User("jduke", "Java Duke", "jduke@example.com");
         final Entry entry = new DefaultEntry();
 
-        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
+        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
         when(ldapConfiguration.getUserMapper()).thenReturn(userMapper);
         when(userMapper.map(entry)).thenReturn(user);
 
@@ -89,8 +104,8 @@ public class LdapAuthenticatorTest {
         final Entry entry = new DefaultEntry();
 
         when(validAuthConfig.getConfiguration()).thenReturn(validLdapConfiguration);
-        when(ldapFactory.ldapForConfiguration(validAuthConfig.getConfiguration())).thenReturn(ldap);
-        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), ArgumentMatchers.<EntryMapper<Entry>>any())).thenThrow(new RuntimeException()).thenReturn(entry);
+        when(ldapFactory.ldapForAuthConfig(validAuthConfig)).thenReturn(ldap);
+        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenThrow(new RuntimeException()).thenReturn(entry);
         when(validLdapConfiguration.getUserMapper()).thenReturn(userMapper);
         when(userMapper.map(entry)).thenReturn(mock(User.class));
 
@@ -104,7 +119,7 @@ public class LdapAuthenticatorTest {
         final UserMapper userMapper = mock(UserMapper.class);
         final Entry entry = new DefaultEntry();
 
-        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
+        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
         when(ldapConfiguration.getUserMapper()).thenReturn(userMapper);
         when(userMapper.map(entry)).thenReturn(mock(User.class));
 
@@ -113,6 +128,38 @@ public class LdapAuthenticatorTest {
         assertThat(authenticationResponse.getConfigUsedForAuthentication()).isEqualTo(authConfig);
     }
 
+    @Test
+    public void authenticate_shouldUseCachedAuthenticationWhenPresent() throws Exception {
+        final AuthenticationCache authenticationCache = mock(AuthenticationCache.class);
+        final UserMapper userMapper = mock(UserMapper.class);
+        final User user = new User("jduke", "Java Duke", "jduke@example.com");
+        final Entry entry = new DefaultEntry();
+
+        when(authenticationCache.getIfPresent(authConfig, credentials, UserAttributes.ALL)).thenReturn(entry);
+        when(ldapConfiguration.getUserMapper()).thenReturn(userMapper);
+        when(userMapper.map(entry)).thenReturn(user);
+
+        final AuthenticationResponse authenticationResponse = new LdapAuthenticator(ldapFactory, authenticationCache, new UserCache()).authenticate(credentials, Collections.singletonList(authConfig));
+
+        assertThat(authenticationResponse.getUser()).isEqualTo(user);
+        verify(ldap, never()).authenticate(anyString(), anyString(), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void authenticate_shouldCacheSuccessfulAuthentication() throws Exception {
+        final AuthenticationCache authenticationCache = mock(AuthenticationCache.class);
+        final UserMapper userMapper = mock(UserMapper.class);
+        final Entry entry = new DefaultEntry();
+
+        when(ldap.authenticate(eq(credentials.getUsername()), eq(credentials.getPassword()), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
+        when(ldapConfiguration.getUserMapper()).thenReturn(userMapper);
+        when(userMapper.map(entry)).thenReturn(new User("jduke", "Java Duke", "jduke@example.com"));
+
+        new LdapAuthenticator(ldapFactory, authenticationCache, new UserCache()).authenticate(credentials, Collections.singletonList(authConfig));
+
+        verify(authenticationCache).put(authConfig, credentials, UserAttributes.ALL, entry);
+    }
+
     @Test
     public void searchUser_shouldReturnAuthenticationResponseWithAuthConfigWhenUserIsFound() throws Exception {
         final String USER_NAME = "foobar";
@@ -123,12 +170,192 @@ public class LdapAuthenticatorTest {
         final User user = new User(USER_NAME, USER_NAME, USER_NAME + "@hmail.com");
 
         when(validAuthConfig.getConfiguration()).thenReturn(validLdapConfiguration);
-        when(ldapFactory.ldapForConfiguration(validAuthConfig.getConfiguration())) .thenReturn(ldap);
-        when(ldap.searchUser(eq(USER_NAME), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
+        when(ldapFactory.ldapForAuthConfig(validAuthConfig)).thenReturn(ldap);
+        when(ldap.searchUser(eq(USER_NAME), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
         when(validLdapConfiguration.getUserMapper()).thenReturn(userMapper);
         when(userMapper.map(entry)).thenReturn(user);
 
         AuthenticationResponse authenticationResponse = ldapAuthenticator.searchUser(USER_NAME, Arrays.asList(this.authConfig, validAuthConfig));
         assertThat(authenticationResponse.getConfigUsedForAuthentication()).isEqualTo(validAuthConfig);
     }
+
+    @Test
+    public void searchUser_shouldUseCachedUserWhenPresent() throws Exception {
+        final UserCache userCache = mock(UserCache.class);
+        final User user = new User("jduke", "Java Duke", "jduke@example.com");
+
+        when(userCache.getIfPresent(authConfig, "jduke", UserAttributes.ALL)).thenReturn(user);
+
+        final AuthenticationResponse authenticationResponse = new LdapAuthenticator(ldapFactory, new AuthenticationCache(), userCache).searchUserWithAuthConfig("jduke", authConfig);
+
+        assertThat(authenticationResponse.getUser()).isEqualTo(user);
+        assertThat(authenticationResponse.getConfigUsedForAuthentication()).isEqualTo(authConfig);
+        verify(ldap, never()).searchUser(anyString(), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void searchUser_shouldShareOneSearchBetweenConcurrentLookupsOfTheSameUser() throws Exception {
+        final UserMapper userMapper = mock(UserMapper.class);
+        final User user = new User("jduke", "Java Duke", "jduke@example.com");
+        final Entry entry = new DefaultEntry();
+        final CountDownLatch searchStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        when(ldap.searchUser(eq("jduke"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenAnswer(invocation -> {
+            searchStarted.countDown();
+            release.await();
+            return entry;
+        });
+        when(ldapConfiguration.getUserMapper()).thenReturn(userMapper);
+        when(userMapper.map(entry)).thenReturn(user);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<AuthenticationResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                responses.add(executor.submit(() -> ldapAuthenticator.searchUserWithAuthConfig("jduke", authConfig)));
+            }
+            searchStarted.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<AuthenticationResponse> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS).getUser()).isEqualTo(user);
+            }
+            verify(ldap, times(1)).searchUser(eq("jduke"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void searchUser_shouldCacheFoundUser() throws Exception {
+        final UserCache userCache = mock(UserCache.class);
+        final UserMapper userMapper = mock(UserMapper.class);
+        final User user = new User("jduke", "Java Duke", "jduke@example.com");
+        final Entry entry = new DefaultEntry();
+
+        when(ldap.searchUser(eq("jduke"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(entry);
+        when(ldapConfiguration.getUserMapper()).thenReturn(userMapper);
+        when(userMapper.map(entry)).thenReturn(user);
+
+        new LdapAuthenticator(ldapFactory, new AuthenticationCache(), userCache).searchUserWithAuthConfig("jduke", authConfig);
+
+        verify(userCache).put(authConfig, "jduke", UserAttributes.ALL, user);
+    }
+
+    @Test
+    public void searchUser_shouldNotSearchAgainForUserRecentlyFoundNotToExist() throws Exception {
+        when(ldapConfiguration.getUnknownUserCacheTtl()).thenReturn(60);
+        when(ldapConfiguration.getUnknownUserCacheSize()).thenReturn(100);
+        when(ldap.searchUser(eq("typo"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenThrow(new UserNotFoundException("User typo does not exist in ldap://localhost"));
+        final LdapAuthenticator ldapAuthenticator = new LdapAuthenticator(ldapFactory, new AuthenticationCache(), new UserCache(), new UnknownUserCache(), new ChangeTrackers());
+
+        assertThat(ldapAuthenticator.searchUserWithAuthConfig("typo", authConfig)).isNull();
+        assertThat(ldapAuthenticator.searchUserWithAuthConfig("typo", authConfig)).isNull();
+        assertThat(ldapAuthenticator.authenticate(new Credentials("typo", "password"), Collections.singletonList(authConfig))).isNull();
+
+        verify(ldap, times(1)).searchUser(eq("typo"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
+        verify(ldap, never()).authenticate(anyString(), anyString(), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void searchUser_shouldSearchAgainAfterFailedSearch() throws Exception {
+        when(ldapConfiguration.getUnknownUserCacheTtl()).thenReturn(60);
+        when(ldapConfiguration.getUnknownUserCacheSize()).thenReturn(100);
+        when(ldap.searchUser(eq("bob"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenThrow(new RuntimeException("Connection refused"));
+        final LdapAuthenticator ldapAuthenticator = new LdapAuthenticator(ldapFactory, new AuthenticationCache(), new UserCache(), new UnknownUserCache(), new ChangeTrackers());
+
+        ldapAuthenticator.searchUserWithAuthConfig("bob", authConfig);
+        ldapAuthenticator.searchUserWithAuthConfig("bob", authConfig);
+
+        verify(ldap, times(2)).searchUser(eq("bob"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void searchUser_shouldRequestOnlyAttributesNeededForRoleConfigsOfAuthConfig() throws Exception {
+        final AuthConfig authConfig = RequestBodyMother.authConfigWith("ldap");
+        final List<RoleConfig> roleConfigs = Arrays.asList(
+                roleConfigWith("admin", "ldap", "(member={dn})"),
+                roleConfigWith("view", "ldap", "(memberUid={uid})"),
+                roleConfigWith("other", "another_ldap", "(owner={employeeNumber})"));
+
+        when(ldapFactory.ldapForAuthConfig(authConfig)).thenReturn(ldap);
+        when(ldap.searchUser(eq("jduke"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new DefaultEntry());
+
+        ldapAuthenticator.searchUserWithAuthConfig("jduke", authConfig, roleConfigs);
+
+        verify(ldap).searchUser(eq("jduke"), eq(new String[]{"displayName", "mail", "memberOf", "uid"}), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void searchUser_shouldPreferHigherPriorityAuthConfigWhenAuthConfigsAreQueriedInParallel() throws Exception {
+        final CountDownLatch lowerPriorityDone = new CountDownLatch(1);
+        final AuthConfig lowerPriorityAuthConfig = parallelAuthConfig("lower", searchAnswer(() -> lowerPriorityDone.countDown(), "uid=lower"));
+        final AuthConfig higherPriorityAuthConfig = parallelAuthConfig("higher", searchAnswer(() -> lowerPriorityDone.await(5, TimeUnit.SECONDS), "uid=higher"));
+
+        final AuthenticationResponse authenticationResponse = ldapAuthenticator.searchUser("bob", Arrays.asList(higherPriorityAuthConfig, lowerPriorityAuthConfig));
+
+        assertThat(lowerPriorityDone.getCount()).isEqualTo(0);
+        assertThat(authenticationResponse.getConfigUsedForAuthentication()).isEqualTo(higherPriorityAuthConfig);
+    }
+
+    @Test
+    public void searchUser_shouldCancelLowerPriorityAuthConfigsOnceHigherPriorityAuthConfigFindsUser() throws Exception {
+        final CountDownLatch lowerPriorityStarted = new CountDownLatch(1);
+        final CountDownLatch lowerPriorityInterrupted = new CountDownLatch(1);
+        final AuthConfig higherPriorityAuthConfig = parallelAuthConfig("higher", searchAnswer(() -> lowerPriorityStarted.await(5, TimeUnit.SECONDS), "uid=higher"));
+        final AuthConfig lowerPriorityAuthConfig = parallelAuthConfig("lower", searchAnswer(() -> {
+            lowerPriorityStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                lowerPriorityInterrupted.countDown();
+                throw e;
+            }
+        }, "uid=lower"));
+
+        final AuthenticationResponse authenticationResponse = ldapAuthenticator.searchUser("bob", Arrays.asList(higherPriorityAuthConfig, lowerPriorityAuthConfig));
+
+        assertThat(authenticationResponse.getConfigUsedForAuthentication()).isEqualTo(higherPriorityAuthConfig);
+        assertThat(lowerPriorityInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void searchUser_shouldTryNextAuthConfigWhenHigherPriorityAuthConfigFailsUnexpectedly() throws Exception {
+        final AuthConfig higherPriorityAuthConfig = parallelAuthConfig("higher", searchAnswer(() -> {
+        }, "uid=higher"));
+        final AuthConfig lowerPriorityAuthConfig = parallelAuthConfig("lower", searchAnswer(() -> {
+        }, "uid=lower"));
+        when(ldapFactory.ldapForAuthConfig(higherPriorityAuthConfig)).thenThrow(new IllegalStateException("Pool is closed"));
+
+        final AuthenticationResponse authenticationResponse = ldapAuthenticator.searchUser("bob", Arrays.asList(higherPriorityAuthConfig, lowerPriorityAuthConfig));
+
+        assertThat(authenticationResponse.getConfigUsedForAuthentication()).isEqualTo(lowerPriorityAuthConfig);
+    }
+
+    private AuthConfig parallelAuthConfig(String id, Answer<Entry> searchAnswer) {
+        final LdapConfiguration configuration = mock(LdapConfiguration.class);
+        final UserMapper userMapper = mock(UserMapper.class);
+        final Ldap parallelLdap = mock(Ldap.class);
+        final AuthConfig parallelAuthConfig = new AuthConfig(id, configuration);
+
+        when(configuration.parallelAuthentication()).thenReturn(true);
+        when(configuration.getUserMapper()).thenReturn(userMapper);
+        when(userMapper.map(any(Entry.class))).thenReturn(new User("bob", "Bob", "bob@example.com"));
+        when(ldapFactory.ldapForAuthConfig(parallelAuthConfig)).thenReturn(parallelLdap);
+        when(parallelLdap.searchUser(eq("bob"), any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenAnswer(searchAnswer);
+        return parallelAuthConfig;
+    }
+
+    private Answer<Entry> searchAnswer(Action beforeReturning, String dn) {
+        return invocation -> {
+            beforeReturning.run();
+            return new DefaultEntry(dn);
+        };
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
 }
@@ -17,10 +17,11 @@
 package com.thoughtworks.gocd.authorization.ldap;
 
 import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap.GroupSearchResult;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
+import com.thoughtworks.gocd.authorization.ldap.cache.RoleCache;
 import com.thoughtworks.gocd.authorization.ldap.mapper.RoleMapper;
 import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
-import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
 import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.User;
 import org.apache.directory.api.ldap.model.entry.DefaultEntry;
@@ -37,9 +38,14 @@ import javax.naming.NamingException;
 import javax.naming.directory.BasicAttributes;
 import java.util.*;
 
+import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.nestedGroupRoleConfigWith;
 import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.roleConfigWith;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -69,7 +75,7 @@ public class LdapAuthorizerTest {
 
         ldapAuthorizer = new LdapAuthorizer(ldapFactory, roleMapper, builder);
 
-        when(ldapFactory.ldapForConfiguration(ArgumentMatchers.any(LdapConfiguration.class))).thenReturn(ldap);
+        when(ldapFactory.ldapForAuthConfig(ArgumentMatchers.any(AuthConfig.class))).thenReturn(ldap);
     }
 
     @Test
@@ -88,6 +94,69 @@ public class LdapAuthorizerTest {
         assertThat(roles).contains("admin");
     }
 
+    @Test
+    public void authorize_shouldReuseCachedRolesWhenRoleCacheIsEnabled() throws Exception {
+        AuthConfig authConfig = new AuthConfig("ldap_server_cached", new LdapConfigurationMother.Builder().withRoleCacheTtl(60).build());
+        RoleConfig admin = roleConfigWith("admin", "ldap_server_cached");
+
+        when(roleMapper.map(eq(entry), ArgumentMatchers.anyList())).thenReturn(Collections.singleton("admin"));
+
+        ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+
+        assertThat(roles).containsExactly("admin");
+        verify(roleMapper, times(1)).map(eq(entry), ArgumentMatchers.anyList());
+    }
+
+    @Test
+    public void authorize_shouldNotCacheRolesWhenAGroupSearchFails() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("ldap_server_failed_group_search", new LdapConfigurationMother.Builder().withRoleCacheTtl(60).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_failed_group_search", "(member={dn})", "ou=groups");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(ldap.searchGroupBases(eq(List.of("ou=groups")), eq("(member=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any()))
+                .thenThrow(new RuntimeException("Server is busy"))
+                .thenReturn(new GroupSearchResult<>(List.of(new DefaultEntry()), true));
+
+        final Set<String> rolesAfterFailure = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+
+        assertThat(rolesAfterFailure).isEmpty();
+        assertThat(roles).containsExactly("admin");
+        verify(ldap, times(2)).searchGroupBases(eq(List.of("ou=groups")), eq("(member=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void authorize_shouldNotCacheRolesWhenAGroupSearchBaseCouldNotBeSearched() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("ldap_server_incomplete_group_search", new LdapConfigurationMother.Builder().withRoleCacheTtl(60).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_incomplete_group_search", "(member={dn})", "ou=groups");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(ldap.searchGroupBases(eq(List.of("ou=groups")), eq("(member=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any()))
+                .thenReturn(new GroupSearchResult<>(Collections.emptyList(), false))
+                .thenReturn(new GroupSearchResult<>(List.of(new DefaultEntry()), true));
+
+        final Set<String> rolesAfterFailure = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+
+        assertThat(rolesAfterFailure).isEmpty();
+        assertThat(roles).containsExactly("admin");
+    }
+
+    @Test
+    public void authorize_shouldAssignRoleFoundInASearchBaseWhenAnotherSearchBaseCouldNotBeSearched() throws Exception {
+        final AuthConfig authConfig = RequestBodyMother.authConfigWith("ldap_server_partial_group_search");
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_partial_group_search", "(member={dn})", "ou=groups");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(ldap.searchGroupBases(eq(List.of("ou=groups")), eq("(member=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any()))
+                .thenReturn(new GroupSearchResult<>(List.of(new DefaultEntry()), false));
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+
+        assertThat(roles).containsExactly("admin");
+    }
+
     @Test
     public void authorize_shouldReturnEmptySetIfRoleConfigsIsEmpty() throws Exception {
         AuthConfig authConfig = RequestBodyMother.authConfigWith("ldap_server_east");
@@ -108,8 +177,8 @@ public class LdapAuthorizerTest {
         final RoleConfig roleConfig = roleConfigWith("admin", "ldap_server_east", groupMembershipExpression, "ou=foo");
 
         when(builder.build(groupMembershipExpression, entry)).thenReturn(groupMembershipFilter);
-        when(ldapFactory.ldapForConfiguration(authConfig.getConfiguration())).thenReturn(ldap);
-        when(ldap.searchGroup(eq(groupMembershipSearchBase), eq(groupMembershipFilter), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(Arrays.asList(new DefaultEntry()));
+        when(ldapFactory.ldapForAuthConfig(authConfig)).thenReturn(ldap);
+        when(ldap.searchGroupBases(eq(groupMembershipSearchBase), eq(groupMembershipFilter), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new GroupSearchResult<>(Arrays.asList(new DefaultEntry()), true));
 
         final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(roleConfig));
 
@@ -130,9 +199,9 @@ public class LdapAuthorizerTest {
 
         when(builder.build(memberExpression, entry)).thenReturn(memberFilter);
         when(builder.build(memberUidExpression, entry)).thenReturn(memberUidFilter);
-        when(ldapFactory.ldapForConfiguration(authConfig.getConfiguration())).thenReturn(ldap);
-        when(ldap.searchGroup(eq(new ArrayList<>()), eq(memberFilter), ArgumentMatchers.<EntryMapper<BasicAttributes>>any())).thenReturn(Arrays.asList(new BasicAttributes()));
-        when(ldap.searchGroup(eq(new ArrayList<>()), eq(memberUidFilter), ArgumentMatchers.<EntryMapper<BasicAttributes>>any())).thenReturn(Arrays.asList(new BasicAttributes()));
+        when(ldapFactory.ldapForAuthConfig(authConfig)).thenReturn(ldap);
+        when(ldap.searchGroupBases(eq(new ArrayList<>()), eq(memberFilter), ArgumentMatchers.<EntryMapper<BasicAttributes>>any())).thenReturn(new GroupSearchResult<>(Arrays.asList(new BasicAttributes()), true));
+        when(ldap.searchGroupBases(eq(new ArrayList<>()), eq(memberUidFilter), ArgumentMatchers.<EntryMapper<BasicAttributes>>any())).thenReturn(new GroupSearchResult<>(Arrays.asList(new BasicAttributes()), true));
 
         final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view));
 
@@ -157,4 +226,160 @@ public class LdapAuthorizerTest {
         verifyNoMoreInteractions(ldap);
         verifyNoMoreInteractions(builder);
     }
+
+    @Test
+    public void authorize_shouldResolveGroupMembershipRolesWithSingleSearchPerSearchBaseWhenBatchingIsEnabled() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("ldap_server_batched", new LdapConfigurationMother.Builder().withBatchGroupMembershipSearch(true).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_batched", "(member={dn})", "ou=groups");
+        final RoleConfig view = roleConfigWith("view", "ldap_server_batched", "(uniqueMember={dn})", "ou=groups");
+        final RoleConfig deploy = roleConfigWith("deploy", "ldap_server_batched", "(owner={dn})", "ou=groups");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(builder.build("(uniqueMember={dn})", entry)).thenReturn("(uniqueMember=uid=bford,ou=users)");
+        when(builder.build("(owner={dn})", entry)).thenReturn("(owner=uid=bford,ou=users)");
+        when(ldap.searchGroup(eq(List.of("ou=groups")), eq("(|(member=uid=bford,ou=users)(uniqueMember=uid=bford,ou=users)(owner=uid=bford,ou=users))"), ArgumentMatchers.any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any()))
+                .thenReturn(List.of(new DefaultEntry("cn=admins,ou=groups", "member: uid=bford, ou=users"), new DefaultEntry("cn=viewers,ou=groups", "uniqueMember: uid=bford,ou=users")));
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view, deploy));
+
+        assertThat(roles).containsExactlyInAnyOrder("admin", "view");
+        verify(ldap, times(1)).searchGroup(ArgumentMatchers.anyList(), ArgumentMatchers.anyString(), ArgumentMatchers.any(String[].class), ArgumentMatchers.any());
+        verify(ldap, never()).searchGroup(ArgumentMatchers.anyList(), ArgumentMatchers.anyString(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void authorize_shouldResolveRolesIndividuallyWhenBatchedResultsCannotBeMappedToRoles() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("ldap_server_batched", new LdapConfigurationMother.Builder().withBatchGroupMembershipSearch(true).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_batched", "(member={dn})", "ou=groups");
+        final RoleConfig view = roleConfigWith("view", "ldap_server_batched", "(uniqueMember={dn})", "ou=groups");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(builder.build("(uniqueMember={dn})", entry)).thenReturn("(uniqueMember=uid=bford,ou=users)");
+        when(ldap.searchGroup(eq(List.of("ou=groups")), ArgumentMatchers.anyString(), ArgumentMatchers.any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any()))
+                .thenReturn(List.of(new DefaultEntry("cn=admins,ou=groups")));
+        when(ldap.searchGroup(eq(List.of("ou=groups")), eq("(member=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(List.of(new DefaultEntry()));
+        when(ldap.searchGroup(eq(List.of("ou=groups")), eq("(uniqueMember=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(Collections.emptyList());
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view));
+
+        assertThat(roles).containsExactly("admin");
+    }
+
+    @Test
+    public void authorize_shouldLeaveMatchingOfCaseExactAttributesToTheServerWhenBatchingIsEnabled() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("ldap_server_batched_case_exact", new LdapConfigurationMother.Builder().withBatchGroupMembershipSearch(true).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_batched_case_exact", "(member={dn})", "ou=groups");
+        final RoleConfig view = roleConfigWith("view", "ldap_server_batched_case_exact", "(memberUid={uid})", "ou=groups");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(builder.build("(memberUid={uid})", entry)).thenReturn("(memberUid=BFord)");
+        when(ldap.searchGroup(eq(List.of("ou=groups")), eq("(|(member=uid=bford,ou=users))"), ArgumentMatchers.any(String[].class), ArgumentMatchers.<EntryMapper<Entry>>any()))
+                .thenReturn(List.of(new DefaultEntry("cn=admins,ou=groups", "member: uid=bford,ou=users", "memberUid: bford")));
+        when(ldap.searchGroupBases(eq(List.of("ou=groups")), eq("(memberUid=BFord)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new GroupSearchResult<>(Collections.emptyList(), true));
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view));
+
+        assertThat(roles).containsExactly("admin");
+        verify(ldap).searchGroupBases(eq(List.of("ou=groups")), eq("(memberUid=BFord)"), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void authorize_shouldResolveGroupMembershipRolesConcurrentlyWhenParallelismIsConfigured() throws Exception {
+        final AuthConfig authConfig = new AuthConfig("ldap_server_parallel", new LdapConfigurationMother.Builder().withGroupSearchParallelism(4).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_parallel", "(member={dn})");
+        final RoleConfig view = roleConfigWith("view", "ldap_server_parallel", "(memberUid={uid})");
+        final RoleConfig deploy = roleConfigWith("deploy", "ldap_server_parallel", "(owner={dn})");
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford)");
+        when(builder.build("(memberUid={uid})", entry)).thenReturn("(memberUid=bford)");
+        when(builder.build("(owner={dn})", entry)).thenReturn("(owner=uid=bford)");
+        when(ldap.searchGroupBases(ArgumentMatchers.anyList(), eq("(member=uid=bford)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new GroupSearchResult<>(List.of(new DefaultEntry()), true));
+        when(ldap.searchGroupBases(ArgumentMatchers.anyList(), eq("(memberUid=bford)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new GroupSearchResult<>(List.of(new DefaultEntry()), true));
+        when(ldap.searchGroupBases(ArgumentMatchers.anyList(), eq("(owner=uid=bford)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new GroupSearchResult<>(Collections.emptyList(), true));
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view, deploy));
+
+        assertThat(roles).containsExactlyInAnyOrder("admin", "view");
+    }
+
+    @Test
+    public void authorize_shouldResolveRolesUsingNestedGroupsWhenNotMappedDirectly() throws Exception {
+        final NestedGroupResolver nestedGroupResolver = mock(NestedGroupResolver.class);
+        final AuthConfig authConfig = RequestBodyMother.authConfigWith("ldap_server_nested");
+        final RoleConfig admin = nestedGroupRoleConfigWith("admin", "ldap_server_nested", "cn=admins,ou=groups");
+        final RoleConfig view = nestedGroupRoleConfigWith("view", "ldap_server_nested", "cn=viewers,ou=groups");
+        ldapAuthorizer = new LdapAuthorizer(ldapFactory, roleMapper, builder, new RoleCache(), new GroupSearchExecutor(), nestedGroupResolver);
+
+        when(roleMapper.map(eq(entry), ArgumentMatchers.anyList())).thenReturn(new HashSet<>(Set.of("view")));
+        when(nestedGroupResolver.isMember(user, ldap, authConfig, admin.getRoleConfiguration())).thenReturn(true);
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view));
+
+        assertThat(roles).containsExactlyInAnyOrder("admin", "view");
+        verify(nestedGroupResolver, never()).isMember(user, ldap, authConfig, view.getRoleConfiguration());
+    }
+
+    @Test
+    public void authorize_shouldResolveGroupMembershipRolesFromGroupMembershipGraph() throws Exception {
+        final GroupMembershipGraphs groupMembershipGraphs = mock(GroupMembershipGraphs.class);
+        final AuthConfig authConfig = new AuthConfig("ldap_server_graph", new LdapConfigurationMother.Builder().withGroupMembershipGraphRefreshInterval(300).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_graph", "(member={dn})", "ou=groups");
+        final RoleConfig view = roleConfigWith("view", "ldap_server_graph", "(uniqueMember={dn})", "ou=groups");
+        final GroupMembershipGraph graph = GroupMembershipGraph.builder(Set.of("member", "uniqueMember"))
+                .add(new DefaultEntry("cn=admins,ou=groups", "member: uid=bford,ou=users"))
+                .add(new DefaultEntry("cn=viewers,ou=groups", "uniqueMember: uid=jdoe,ou=users"))
+                .build();
+        ldapAuthorizer = new LdapAuthorizer(ldapFactory, roleMapper, builder, new RoleCache(), new GroupSearchExecutor(), new NestedGroupResolver(), groupMembershipGraphs);
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(builder.build("(uniqueMember={dn})", entry)).thenReturn("(uniqueMember=uid=bford,ou=users)");
+        when(groupMembershipGraphs.graphFor(eq(authConfig), eq("ou=groups"), ArgumentMatchers.anySet())).thenReturn(graph);
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view));
+
+        assertThat(roles).containsExactly("admin");
+        verify(ldap, never()).searchGroupBases(ArgumentMatchers.anyList(), ArgumentMatchers.anyString(), ArgumentMatchers.<EntryMapper<Entry>>any());
+    }
+
+    @Test
+    public void authorize_shouldNotSearchForRolesResolvedFromGroupMembershipGraphWhenBatchingIsEnabled() throws Exception {
+        final GroupMembershipGraphs groupMembershipGraphs = mock(GroupMembershipGraphs.class);
+        final AuthConfig authConfig = new AuthConfig("ldap_server_graph_batched", new LdapConfigurationMother.Builder()
+                .withGroupMembershipGraphRefreshInterval(300)
+                .withBatchGroupMembershipSearch(true)
+                .build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_graph_batched", "(member={dn})", "ou=groups");
+        final RoleConfig view = roleConfigWith("view", "ldap_server_graph_batched", "(uniqueMember={dn})", "ou=groups");
+        final GroupMembershipGraph graph = GroupMembershipGraph.builder(Set.of("member", "uniqueMember"))
+                .add(new DefaultEntry("cn=admins,ou=groups", "member: uid=bford,ou=users"))
+                .add(new DefaultEntry("cn=viewers,ou=groups", "uniqueMember: uid=jdoe,ou=users"))
+                .build();
+        ldapAuthorizer = new LdapAuthorizer(ldapFactory, roleMapper, builder, new RoleCache(), new GroupSearchExecutor(), new NestedGroupResolver(), groupMembershipGraphs);
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(builder.build("(uniqueMember={dn})", entry)).thenReturn("(uniqueMember=uid=bford,ou=users)");
+        when(groupMembershipGraphs.graphFor(eq(authConfig), eq("ou=groups"), ArgumentMatchers.anySet())).thenReturn(graph);
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin, view));
+
+        assertThat(roles).containsExactly("admin");
+        verify(ldap, never()).searchGroupBases(ArgumentMatchers.anyList(), ArgumentMatchers.anyString(), ArgumentMatchers.<EntryMapper<Entry>>any());
+        verify(ldap, never()).searchGroup(ArgumentMatchers.anyList(), ArgumentMatchers.anyString(), ArgumentMatchers.any(String[].class), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void authorize_shouldSearchGroupsUntilGroupMembershipGraphIsAvailable() throws Exception {
+        final GroupMembershipGraphs groupMembershipGraphs = mock(GroupMembershipGraphs.class);
+        final AuthConfig authConfig = new AuthConfig("ldap_server_graph_pending", new LdapConfigurationMother.Builder().withGroupMembershipGraphRefreshInterval(300).build());
+        final RoleConfig admin = roleConfigWith("admin", "ldap_server_graph_pending", "(member={dn})", "ou=groups");
+        ldapAuthorizer = new LdapAuthorizer(ldapFactory, roleMapper, builder, new RoleCache(), new GroupSearchExecutor(), new NestedGroupResolver(), groupMembershipGraphs);
+
+        when(builder.build("(member={dn})", entry)).thenReturn("(member=uid=bford,ou=users)");
+        when(ldap.searchGroupBases(eq(List.of("ou=groups")), eq("(member=uid=bford,ou=users)"), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(new GroupSearchResult<>(List.of(new DefaultEntry()), true));
+
+        final Set<String> roles = ldapAuthorizer.authorize(user, authConfig, Arrays.asList(admin));
+
+        assertThat(roles).containsExactly("admin");
+        verify(groupMembershipGraphs).graphFor(eq(authConfig), eq("ou=groups"), ArgumentMatchers.anySet());
+    }
 }
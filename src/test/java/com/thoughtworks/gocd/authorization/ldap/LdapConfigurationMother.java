@@ -83,6 +83,131 @@ public class LdapConfigurationMother {
             return this;
         }
 
+        public Builder withPoolMaxTotal(int poolMaxTotal) {
+            this.configuration.put("PoolMaxTotal", poolMaxTotal);
+            return this;
+        }
+
+        public Builder withPoolMaxIdle(int poolMaxIdle) {
+            this.configuration.put("PoolMaxIdle", poolMaxIdle);
+            return this;
+        }
+
+        public Builder withPoolMinIdle(int poolMinIdle) {
+            this.configuration.put("PoolMinIdle", poolMinIdle);
+            return this;
+        }
+
+        public Builder withPoolMaxWait(int poolMaxWait) {
+            this.configuration.put("PoolMaxWait", poolMaxWait);
+            return this;
+        }
+
+        public Builder withPoolEvictionInterval(int poolEvictionInterval) {
+            this.configuration.put("PoolEvictionInterval", poolEvictionInterval);
+            return this;
+        }
+
+        public Builder withPoolTestWhileIdle(boolean poolTestWhileIdle) {
+            this.configuration.put("PoolTestWhileIdle", poolTestWhileIdle);
+            return this;
+        }
+
+        public Builder withPoolWarmUpConnections(int poolWarmUpConnections) {
+            this.configuration.put("PoolWarmUpConnections", poolWarmUpConnections);
+            return this;
+        }
+
+        public Builder withAuthenticationCacheTtl(int authenticationCacheTtl) {
+            this.configuration.put("AuthenticationCacheTtl", authenticationCacheTtl);
+            return this;
+        }
+
+        public Builder withAuthenticationCacheSize(int authenticationCacheSize) {
+            this.configuration.put("AuthenticationCacheSize", authenticationCacheSize);
+            return this;
+        }
+
+        public Builder withUserCacheTtl(int userCacheTtl) {
+            this.configuration.put("UserCacheTtl", userCacheTtl);
+            return this;
+        }
+
+        public Builder withUserCacheSize(int userCacheSize) {
+            this.configuration.put("UserCacheSize", userCacheSize);
+            return this;
+        }
+
+        public Builder withRoleCacheTtl(int roleCacheTtl) {
+            this.configuration.put("RoleCacheTtl", roleCacheTtl);
+            return this;
+        }
+
+        public Builder withBatchGroupMembershipSearch(boolean batchGroupMembershipSearch) {
+            this.configuration.put("BatchGroupMembershipSearch", batchGroupMembershipSearch);
+            return this;
+        }
+
+        public Builder withGroupSearchParallelism(int groupSearchParallelism) {
+            this.configuration.put("GroupSearchParallelism", groupSearchParallelism);
+            return this;
+        }
+
+        public Builder withGroupSearchDeadline(int groupSearchDeadline) {
+            this.configuration.put("GroupSearchDeadline", groupSearchDeadline);
+            return this;
+        }
+
+        public Builder withSearchBasesInParallel(boolean searchBasesInParallel) {
+            this.configuration.put("SearchBasesInParallel", searchBasesInParallel);
+            return this;
+        }
+
+        public Builder withParallelAuthentication(boolean parallelAuthentication) {
+            this.configuration.put("ParallelAuthentication", parallelAuthentication);
+            return this;
+        }
+
+        public Builder withSearchPageSize(int searchPageSize) {
+            this.configuration.put("SearchPageSize", searchPageSize);
+            return this;
+        }
+
+        public Builder withSearchResultLimit(int searchResultLimit) {
+            this.configuration.put("SearchResultLimit", searchResultLimit);
+            return this;
+        }
+
+        public Builder withGroupGraphCacheTtl(int groupGraphCacheTtl) {
+            this.configuration.put("GroupGraphCacheTtl", groupGraphCacheTtl);
+            return this;
+        }
+
+        public Builder withGroupMembershipGraphRefreshInterval(int groupMembershipGraphRefreshInterval) {
+            this.configuration.put("GroupMembershipGraphRefreshInterval", groupMembershipGraphRefreshInterval);
+            return this;
+        }
+
+        public Builder withGroupMembershipGraphMaxStaleness(int groupMembershipGraphMaxStaleness) {
+            this.configuration.put("GroupMembershipGraphMaxStaleness", groupMembershipGraphMaxStaleness);
+            return this;
+        }
+
+        public Builder withChangeTrackingBase(String changeTrackingBase) {
+            this.configuration.put("ChangeTrackingBase", changeTrackingBase);
+            return this;
+        }
+
+        public Builder withUnknownUserCacheTtl(int unknownUserCacheTtl) {
+            this.configuration.put("UnknownUserCacheTtl", unknownUserCacheTtl);
+            return this;
+        }
+
+        public Builder withUnknownUserCacheSize(int unknownUserCacheSize) {
+            this.configuration.put("UnknownUserCacheSize", unknownUserCacheSize);
+            return this;
+        }
+
         public final LdapConfiguration build() {
             return LdapConfiguration.fromJSON(new Gson().toJson(configuration));
         }
@@ -58,4 +58,29 @@ public class LdapSearchFilterBuilderTest {
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Failed to build search filter `(| (member={uid}) (memberUid=cn=bford,ou=system))`. Missing attribute for the expression `uid`");
     }
+
+    @Test
+    public void build_shouldEscapeSubstitutedValues() throws Exception {
+        final Entry entry = new DefaultEntry();
+        entry.add("cn", "Ford (Ops) *");
+        entry.setDn("cn=Ford\\, Bob,ou=system");
+
+        final LdapSearchFilterBuilder builder = new LdapSearchFilterBuilder();
+        final String filter = builder.build("(|(member={dn})(description={cn}*))", entry);
+
+        assertThat(filter).isEqualTo("(|(member=cn=Ford\\5C, Bob,ou=system)(description=Ford \\28Ops\\29 \\2A*))");
+    }
+
+    @Test
+    public void build_shouldRenderSameFilterExpressionForDifferentEntries() throws Exception {
+        final Entry bford = new DefaultEntry();
+        bford.add("uid", "bford");
+        final Entry sbanks = new DefaultEntry();
+        sbanks.add("uid", "sbanks");
+
+        final LdapSearchFilterBuilder builder = new LdapSearchFilterBuilder();
+
+        assertThat(builder.build("(|(memberUid={uid})(owner=uid={uid}))", bford)).isEqualTo("(|(memberUid=bford)(owner=uid=bford))");
+        assertThat(builder.build("(|(memberUid={uid})(owner=uid={uid}))", sbanks)).isEqualTo("(|(memberUid=sbanks)(owner=uid=sbanks))");
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap;
+
+import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.ldap.client.template.EntryMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.nestedGroupRoleConfigWith;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class NestedGroupResolverTest {
+    private static final String DEVELOPERS = "cn=developers,ou=groups,dc=example,dc=com";
+    private static final String ENGINEERING = "cn=engineering,ou=groups,dc=example,dc=com";
+
+    private Ldap ldap;
+    private User user;
+    private NestedGroupResolver resolver;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ldap = mock(Ldap.class);
+        user = new User("bford", "Bob Ford", "bford@example.com", new DefaultEntry("uid=bford,ou=users,dc=example,dc=com", "memberOf: " + DEVELOPERS));
+        resolver = new NestedGroupResolver();
+    }
+
+    @Test
+    public void shouldResolveNestedGroupsUsingMatchingRuleInChainWhenSupported() {
+        final RoleConfiguration roleConfiguration = nestedGroupRoleConfigWith("admin", "in-chain", "cn=GoAdmins,ou=groups,dc=example,dc=com").getRoleConfiguration();
+        when(ldap.supportsMatchingRuleInChain()).thenReturn(true);
+        when(ldap.matches("uid=bford,ou=users,dc=example,dc=com", "(|(memberOf:1.2.840.113556.1.4.1941:=cn=GoAdmins,ou=groups,dc=example,dc=com))")).thenReturn(true);
+
+        assertThat(resolver.isMember(user, ldap, authConfig("in-chain"), roleConfiguration)).isTrue();
+        verify(ldap, never()).lookup(anyString(), any(String[].class), any());
+    }
+
+    @Test
+    public void shouldWalkTheGroupGraphWhenMatchingRuleInChainIsNotSupported() {
+        final RoleConfiguration roleConfiguration = nestedGroupRoleConfigWith("admin", "graph", "CN=GoAdmins, OU=Groups, DC=example, DC=com").getRoleConfiguration();
+        stubParentGroups(DEVELOPERS, ENGINEERING);
+        stubParentGroups(ENGINEERING, "cn=goadmins,ou=groups,dc=example,dc=com");
+
+        assertThat(resolver.isMember(user, ldap, authConfig("graph"), roleConfiguration)).isTrue();
+        verify(ldap, never()).matches(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldStopWalkingTheGroupGraphWhenGroupsAreMembersOfEachOther() {
+        final RoleConfiguration roleConfiguration = nestedGroupRoleConfigWith("admin", "cycle", "cn=GoAdmins,ou=groups,dc=example,dc=com").getRoleConfiguration();
+        stubParentGroups(DEVELOPERS, ENGINEERING);
+        stubParentGroups(ENGINEERING, DEVELOPERS);
+
+        assertThat(resolver.isMember(user, ldap, authConfig("cycle"), roleConfiguration)).isFalse();
+        verify(ldap, times(1)).lookup(eq(DEVELOPERS), any(String[].class), any());
+        verify(ldap, times(1)).lookup(eq(ENGINEERING), any(String[].class), any());
+    }
+
+    @Test
+    public void shouldReuseCachedGroupGraph() {
+        final AuthConfig authConfig = new AuthConfig("cached-graph", new LdapConfigurationMother.Builder().withGroupGraphCacheTtl(60).build());
+        final RoleConfiguration roleConfiguration = nestedGroupRoleConfigWith("admin", "cached-graph", ENGINEERING).getRoleConfiguration();
+        stubParentGroups(DEVELOPERS, ENGINEERING);
+
+        assertThat(resolver.isMember(user, ldap, authConfig, roleConfiguration)).isTrue();
+        assertThat(resolver.isMember(user, ldap, authConfig, roleConfiguration)).isTrue();
+        verify(ldap, times(1)).lookup(eq(DEVELOPERS), any(String[].class), any());
+    }
+
+    @Test
+    public void shouldFollowGroupsListingTheUserOrGroupAsMemberWhenGroupSearchBasesAreConfigured() throws Exception {
+        final User userWithoutMemberOf = new User("bford", "Bob Ford", "bford@example.com", new DefaultEntry("uid=bford,ou=users,dc=example,dc=com"));
+        final RoleConfiguration roleConfiguration = nestedGroupRoleConfigWith("admin", "member-graph", "cn=GoAdmins,ou=groups,dc=example,dc=com", "ou=groups,dc=example,dc=com").getRoleConfiguration();
+        stubGroupsWithMember("uid=bford,ou=users,dc=example,dc=com", DEVELOPERS);
+        stubGroupsWithMember(DEVELOPERS, ENGINEERING);
+        stubGroupsWithMember(ENGINEERING, "cn=GoAdmins,ou=groups,dc=example,dc=com");
+
+        assertThat(resolver.isMember(userWithoutMemberOf, ldap, authConfig("member-graph"), roleConfiguration)).isTrue();
+    }
+
+    @Test
+    public void shouldNotSearchForGroupsListingMembersWithoutGroupSearchBases() {
+        final RoleConfiguration roleConfiguration = nestedGroupRoleConfigWith("admin", "no-search-bases", "cn=GoAdmins,ou=groups,dc=example,dc=com").getRoleConfiguration();
+        stubParentGroups(DEVELOPERS, ENGINEERING);
+
+        assertThat(resolver.isMember(user, ldap, authConfig("no-search-bases"), roleConfiguration)).isFalse();
+        verify(ldap, never()).searchGroup(anyList(), anyString(), any());
+    }
+
+    private void stubGroupsWithMember(String member, String... groups) {
+        when(ldap.searchGroup(eq(List.of("ou=groups,dc=example,dc=com")), eq("(|(member=" + member + ")(uniqueMember=" + member + "))"), ArgumentMatchers.<EntryMapper<String>>any()))
+                .thenReturn(List.of(groups));
+    }
+
+    private void stubParentGroups(String group, String... parentGroups) {
+        when(ldap.lookup(eq(group), eq(new String[]{"memberOf"}), ArgumentMatchers.<EntryMapper<Set<String>>>any())).thenReturn(Set.of(parentGroups));
+    }
+
+    private AuthConfig authConfig(String id) {
+        return new AuthConfig(id, new LdapConfigurationMother.Builder().build());
+    }
+}
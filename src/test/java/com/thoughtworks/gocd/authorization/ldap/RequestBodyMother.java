@@ -164,6 +164,31 @@ public class RequestBodyMother {
         return RoleConfig.fromJSON(roleConfigJson(roleName, authConfigId, "memberOf", "ou=pune", groupMembershipFilter, groupMembershipSearchBase));
     }
 
+    public static RoleConfig nestedGroupRoleConfigWith(String roleName, String authConfigId, String groupIdentifiers) {
+        return RoleConfig.fromJSON(String.format("{\n" +
+                "  \"name\": \"%s\",\n" +
+                "  \"auth_config_id\": \"%s\",\n" +
+                "  \"configuration\": {\n" +
+                "    \"UserGroupMembershipAttribute\": \"memberOf\",\n" +
+                "    \"GroupIdentifiers\": \"%s\",\n" +
+                "    \"ResolveNestedGroups\": \"true\"\n" +
+                "  }\n" +
+                "}", roleName, authConfigId, groupIdentifiers));
+    }
+
+    public static RoleConfig nestedGroupRoleConfigWith(String roleName, String authConfigId, String groupIdentifiers, String groupSearchBases) {
+        return RoleConfig.fromJSON(String.format("{\n" +
+                "  \"name\": \"%s\",\n" +
+                "  \"auth_config_id\": \"%s\",\n" +
+                "  \"configuration\": {\n" +
+                "    \"UserGroupMembershipAttribute\": \"memberOf\",\n" +
+                "    \"GroupIdentifiers\": \"%s\",\n" +
+                "    \"GroupSearchBases\": \"%s\",\n" +
+                "    \"ResolveNestedGroups\": \"true\"\n" +
+                "  }\n" +
+                "}", roleName, authConfigId, groupIdentifiers, groupSearchBases));
+    }
+
     public static AuthConfig authConfigWith(String authConfigId) {
         return AuthConfig.fromJSON(authConfigJson(authConfigId, "ou=system", ""));
     }
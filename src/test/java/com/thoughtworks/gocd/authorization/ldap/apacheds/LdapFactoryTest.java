@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.apacheds;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+import org.junit.jupiter.api.Test;
+
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getBindConnectionPool;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getLdapConnectionPool;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LdapFactoryTest {
+
+    @Test
+    public void shouldReuseLdapInstanceForSameConfiguration() {
+        final LdapFactory ldapFactory = new LdapFactory();
+
+        final Ldap ldap = ldapFactory.ldapForAuthConfig(new AuthConfig("reuse", new LdapConfigurationMother.Builder().withURL("ldap://reuse").build()));
+        final Ldap sameLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("reuse", new LdapConfigurationMother.Builder().withURL("ldap://reuse").build()));
+
+        assertThat(ldap).isSameAs(sameLdap);
+    }
+
+    @Test
+    public void shouldShareCachedLdapInstancesAcrossFactories() {
+        final LdapConfiguration configuration = new LdapConfigurationMother.Builder().withURL("ldap://shared").build();
+
+        assertThat(new LdapFactory().ldapForAuthConfig(new AuthConfig("shared", configuration))).isSameAs(new LdapFactory().ldapForAuthConfig(new AuthConfig("shared", configuration)));
+    }
+
+    @Test
+    public void shouldCreateNewLdapInstanceForDifferentConfiguration() {
+        final LdapFactory ldapFactory = new LdapFactory();
+
+        final Ldap ldap = ldapFactory.ldapForAuthConfig(new AuthConfig("foo", new LdapConfigurationMother.Builder().withURL("ldap://foo").build()));
+        final Ldap differentLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("bar", new LdapConfigurationMother.Builder().withURL("ldap://bar").build()));
+
+        assertThat(ldap).isNotSameAs(differentLdap);
+    }
+
+    @Test
+    public void shouldEvictStaleLdapInstanceWhenAuthConfigChanges() {
+        final LdapFactory ldapFactory = new LdapFactory();
+        final LdapConfiguration original = new LdapConfigurationMother.Builder().withURL("ldap://original").build();
+        final LdapConfiguration changed = new LdapConfigurationMother.Builder().withURL("ldap://changed").build();
+
+        final Ldap originalLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("changing-auth-config", original));
+        final Ldap changedLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("changing-auth-config", changed));
+
+        assertThat(changedLdap).isNotSameAs(originalLdap);
+        assertThat(ldapFactory.ldapForAuthConfig(new AuthConfig("changing-auth-config", original))).isNotSameAs(originalLdap);
+    }
+
+    @Test
+    public void shouldKeepConnectionPoolsOpenWhenOnlyNonConnectionSettingsOfAuthConfigChange() {
+        final LdapFactory ldapFactory = new LdapFactory();
+        final LdapConfiguration original = new LdapConfigurationMother.Builder().withURL("ldap://non-connection-change").withSearchBases("ou=users").build();
+        final LdapConfiguration changed = new LdapConfigurationMother.Builder().withURL("ldap://non-connection-change").withSearchBases("ou=people").build();
+
+        final Ldap originalLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("non-connection-change", original));
+        final LdapConnectionPool connectionPool = getLdapConnectionPool(originalLdap.getConnectionConfiguration());
+        final LdapConnectionPool bindConnectionPool = getBindConnectionPool(originalLdap.getConnectionConfiguration());
+        final Ldap changedLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("non-connection-change", changed));
+
+        assertThat(changedLdap).isNotSameAs(originalLdap);
+        assertThat(changedLdap.getConnectionConfiguration()).isEqualTo(originalLdap.getConnectionConfiguration());
+        assertThat(connectionPool.isClosed()).isFalse();
+        assertThat(bindConnectionPool.isClosed()).isFalse();
+        assertThat(getLdapConnectionPool(changedLdap.getConnectionConfiguration())).isSameAs(connectionPool);
+        assertThat(getBindConnectionPool(changedLdap.getConnectionConfiguration())).isSameAs(bindConnectionPool);
+    }
+
+    @Test
+    public void shouldCloseConnectionPoolsOfStaleLdapInstanceWhenConnectionSettingsOfAuthConfigChange() {
+        final LdapFactory ldapFactory = new LdapFactory();
+        final LdapConfiguration original = new LdapConfigurationMother.Builder().withURL("ldap://connection-change").build();
+        final LdapConfiguration changed = new LdapConfigurationMother.Builder().withURL("ldap://connection-changed").build();
+
+        final Ldap originalLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("connection-change", original));
+        final LdapConnectionPool connectionPool = getLdapConnectionPool(originalLdap.getConnectionConfiguration());
+        final Ldap changedLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("connection-change", changed));
+
+        assertThat(connectionPool.isClosed()).isTrue();
+        assertThat(getLdapConnectionPool(changedLdap.getConnectionConfiguration()).isClosed()).isFalse();
+    }
+
+    @Test
+    public void shouldNotCacheLdapInstancesCreatedForConfigurations() {
+        final LdapFactory ldapFactory = new LdapFactory();
+        final LdapConfiguration configuration = new LdapConfigurationMother.Builder().withURL("ldap://unsaved").build();
+
+        try (Ldap ldap = ldapFactory.ldapForConfiguration(configuration); Ldap otherLdap = ldapFactory.ldapForConfiguration(configuration)) {
+            assertThat(ldap).isNotSameAs(otherLdap);
+        }
+    }
+
+    @Test
+    public void shouldCloseConnectionPoolsOfUncachedLdapInstanceWhenClosed() {
+        final Ldap ldap = new LdapFactory().ldapForConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://verify-connection").build());
+        final LdapConnectionPool connectionPool = getLdapConnectionPool(ldap.getConnectionConfiguration());
+
+        ldap.close();
+
+        assertThat(connectionPool.isClosed()).isTrue();
+    }
+
+    @Test
+    public void shouldKeepConnectionPoolsOfCachedLdapInstanceOpenWhenUncachedLdapInstanceIsClosed() {
+        final LdapFactory ldapFactory = new LdapFactory();
+        final LdapConfiguration configuration = new LdapConfigurationMother.Builder().withURL("ldap://shared-pools").build();
+
+        final Ldap cachedLdap = ldapFactory.ldapForAuthConfig(new AuthConfig("shared-pools", configuration));
+        ldapFactory.ldapForConfiguration(configuration).close();
+
+        assertThat(getLdapConnectionPool(cachedLdap.getConnectionConfiguration()).isClosed()).isFalse();
+    }
+}
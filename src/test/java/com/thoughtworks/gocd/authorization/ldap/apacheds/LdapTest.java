@@ -17,13 +17,22 @@
 package com.thoughtworks.gocd.authorization.ldap.apacheds;
 
 import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.exception.UserNotFoundException;
 import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
 import org.apache.directory.api.ldap.model.entry.DefaultEntry;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.template.ConnectionCallback;
 import org.apache.directory.ldap.client.template.EntryMapper;
 import org.apache.directory.ldap.client.template.LdapConnectionTemplate;
 import org.junit.jupiter.api.Test;
@@ -31,11 +40,16 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 public class LdapTest {
@@ -130,16 +144,85 @@ public class LdapTest {
         assertThat(searchRequests.get(0).getBase()).isEqualTo("ou=foo,dc=bar");
     }
 
+    @Test
+    public void shouldSearchAllSearchBasesInParallelAndReturnResultsInSearchBaseOrder() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=foo,dc=bar", "ou=baz,dc=bar", "ou=qux,dc=bar")
+                .withSearchBasesInParallel(true)
+                .build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+        final CountDownLatch allSearchesStarted = new CountDownLatch(3);
+
+        when(ldapConnectionTemplate.search(any(SearchRequest.class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenAnswer(invocation -> {
+            final SearchRequest searchRequest = invocation.getArgument(0);
+            allSearchesStarted.countDown();
+            allSearchesStarted.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(new DefaultEntry("uid=bob," + searchRequest.getBase()));
+        });
+
+        final List<Entry> entries = ldap.search("(uid={0})", new String[]{"bob"}, 0);
+
+        assertThat(allSearchesStarted.getCount()).isEqualTo(0);
+        assertThat(entries).extracting(entry -> entry.getDn().getName())
+                .containsExactly("uid=bob,ou=foo,dc=bar", "uid=bob,ou=baz,dc=bar", "uid=bob,ou=qux,dc=bar");
+    }
+
+    @Test
+    public void shouldReturnResultsOfFirstSearchBasesWhenMaxResultLimitIsReachedInParallelSearch() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=foo,dc=bar", "ou=baz,dc=bar")
+                .withSearchBasesInParallel(true)
+                .build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.search(any(SearchRequest.class), ArgumentMatchers.<EntryMapper<Entry>>any())).thenAnswer(invocation -> {
+            final SearchRequest searchRequest = invocation.getArgument(0);
+            return Arrays.asList(new DefaultEntry("uid=bob," + searchRequest.getBase()), new DefaultEntry("uid=alice," + searchRequest.getBase()));
+        });
+
+        final List<Entry> entries = ldap.search("(uid={0})", new String[]{"bob"}, 1);
+
+        assertThat(entries).extracting(entry -> entry.getDn().getName()).containsExactly("uid=bob,ou=foo,dc=bar");
+    }
+
+    @Test
+    public void searchGroups_shouldSearchAllSearchBasesInParallel() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder().withSearchBasesInParallel(true).build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        when(connection.search(any(SearchRequest.class))).thenAnswer(invocation -> {
+            final SearchRequest searchRequest = invocation.getArgument(0);
+            return cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry("cn=admins," + searchRequest.getBase()));
+        });
+
+        final List<Entry> entries = ldap.searchGroup(Arrays.asList("ou=foo,dc=bar", "ou=baz,dc=bar"), "(member=admin)", entry -> entry);
+
+        assertThat(entries).extracting(entry -> entry.getDn().getName()).containsExactly("cn=admins,ou=foo,dc=bar", "cn=admins,ou=baz,dc=bar");
+    }
+
     @Test
     public void shouldSearchGroupsBasedOnGroupMembershipFilter() throws Exception {
         final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
                 .build();
 
         final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
         final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
         final ArgumentCaptor<SearchRequest> argumentCaptor = ArgumentCaptor.forClass(SearchRequestImpl.class);
 
-        when(ldapConnectionTemplate.search(argumentCaptor.capture(), ArgumentMatchers.<EntryMapper<Entry>>any())).thenReturn(Collections.singletonList(new DefaultEntry()));
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        final SearchCursor cursor = cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry());
+        when(connection.search(argumentCaptor.capture())).thenReturn(cursor);
 
         ldap.searchGroup(Arrays.asList("ou=foo,dc=bar"), "(member=admin)", entry -> entry);
 
@@ -157,13 +240,15 @@ public class LdapTest {
         final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder().build();
 
         final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
         final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
         final ArgumentCaptor<SearchRequest> argumentCaptor = ArgumentCaptor.forClass(SearchRequestImpl.class);
 
-        when(ldapConnectionTemplate.search(argumentCaptor.capture(), ArgumentMatchers.<EntryMapper<Entry>>any()))
-                .thenReturn(Collections.singletonList(new DefaultEntry()))
-                .thenReturn(Collections.singletonList(new DefaultEntry()));
-
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        final SearchCursor foo = cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry());
+        final SearchCursor baz = cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry());
+        when(connection.search(argumentCaptor.capture())).thenReturn(foo).thenReturn(baz);
 
         final List<Entry> entries = ldap.searchGroup(Arrays.asList("ou=foo,dc=bar", "ou=baz,dc=bar"), "(member=admin)", entry -> entry);
 
@@ -174,6 +259,220 @@ public class LdapTest {
         assertThat(searchRequests.get(1).getBase()).isEqualTo("ou=baz,dc=bar");
     }
 
+    @Test
+    public void searchGroups_shouldFailWhenASearchBaseCouldNotBeSearched() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder().build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        final SearchCursor admins = cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry("cn=admins,ou=foo,dc=bar"));
+        final SearchCursor busy = cursorReturning(ResultCodeEnum.BUSY);
+        when(connection.search(any(SearchRequest.class))).thenReturn(admins).thenReturn(busy);
+
+        assertThatThrownBy(() -> ldap.searchGroup(Arrays.asList("ou=foo,dc=bar", "ou=baz,dc=bar"), "(member=admin)", entry -> entry))
+                .hasMessageContaining("ou=baz,dc=bar");
+    }
+
+    @Test
+    public void searchGroupBases_shouldKeepGroupsFoundWhenASearchBaseCouldNotBeSearched() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder().build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        final SearchCursor busy = cursorReturning(ResultCodeEnum.BUSY);
+        final SearchCursor admins = cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry("cn=admins,ou=baz,dc=bar"));
+        when(connection.search(any(SearchRequest.class))).thenReturn(busy).thenReturn(admins);
+
+        final Ldap.GroupSearchResult<String> result = ldap.searchGroupBases(Arrays.asList("ou=foo,dc=bar", "ou=baz,dc=bar"), "(member=admin)", entry -> entry.getDn().getName());
+
+        assertThat(result.entries()).containsExactly("cn=admins,ou=baz,dc=bar");
+        assertThat(result.complete()).isFalse();
+    }
+
+    @Test
+    public void searchPaged_shouldFetchAllPagesUsingTheCookieReturnedByTheServer() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=foo,dc=bar").build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+        final ArgumentCaptor<SearchRequest> argumentCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<byte[]>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<byte[]>>getArgument(0).doWithConnection(connection));
+        final SearchCursor firstPage = cursorReturning("next-page".getBytes(), new DefaultEntry("uid=bob"), new DefaultEntry("uid=alice"));
+        final SearchCursor lastPage = cursorReturning(new byte[0], new DefaultEntry("uid=eve"));
+        when(connection.search(argumentCaptor.capture())).thenReturn(firstPage).thenReturn(lastPage);
+
+        final List<String> users = new ArrayList<>();
+        final int count = ldap.searchPaged("(uid={0})", new String[]{"*"}, new String[]{"uid"}, entry -> entry.getDn().getName(), 10, 2, users::add);
+
+        assertThat(count).isEqualTo(3);
+        assertThat(users).containsExactly("uid=bob", "uid=alice", "uid=eve");
+
+        final List<SearchRequest> searchRequests = argumentCaptor.getAllValues();
+        assertThat(searchRequests).hasSize(2);
+        assertThat(((PagedResults) searchRequests.get(0).getControl(PagedResults.OID)).getSize()).isEqualTo(2);
+        assertThat(((PagedResults) searchRequests.get(0).getControl(PagedResults.OID)).getCookie()).isNull();
+        assertThat(((PagedResults) searchRequests.get(1).getControl(PagedResults.OID)).getCookie()).isEqualTo("next-page".getBytes());
+        assertThat(searchRequests.get(1).getSizeLimit()).isEqualTo(8L);
+        verify(ldapConnectionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    public void scanGroups_shouldReadAllPagesOfASearchBaseOverOneConnection() throws Exception {
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(new LdapConfigurationMother.Builder().build(), ldapConnectionTemplate);
+        final ArgumentCaptor<SearchRequest> argumentCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Object>>getArgument(0).doWithConnection(connection));
+        final SearchCursor firstPage = cursorReturning("next-page".getBytes(), new DefaultEntry("cn=admins,ou=groups"));
+        final SearchCursor lastPage = cursorReturning(new byte[0], new DefaultEntry("cn=viewers,ou=groups"));
+        when(connection.search(argumentCaptor.capture())).thenReturn(firstPage).thenReturn(lastPage);
+
+        final List<String> groups = new ArrayList<>();
+        ldap.scanGroups("ou=groups", "(member=*)", new String[]{"member"}, entry -> entry.getDn().getName(), 1, groups::add);
+
+        assertThat(groups).containsExactly("cn=admins,ou=groups", "cn=viewers,ou=groups");
+        assertThat(((PagedResults) argumentCaptor.getAllValues().get(1).getControl(PagedResults.OID)).getCookie()).isEqualTo("next-page".getBytes());
+        verify(ldapConnectionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    public void searchPaged_shouldStopOnceMaxResultCountIsReached() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=foo,dc=bar", "ou=baz,dc=bar").build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<byte[]>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<byte[]>>getArgument(0).doWithConnection(connection));
+        final SearchCursor firstPage = cursorReturning("next-page".getBytes(), new DefaultEntry("uid=bob"), new DefaultEntry("uid=alice"));
+        when(connection.search(any(SearchRequest.class))).thenReturn(firstPage);
+
+        final List<String> users = new ArrayList<>();
+        final int count = ldap.searchPaged("(uid={0})", new String[]{"*"}, new String[]{"uid"}, entry -> entry.getDn().getName(), 1, 2, users::add);
+
+        assertThat(count).isEqualTo(1);
+        assertThat(users).containsExactly("uid=bob");
+        verify(connection, times(1)).search(any(SearchRequest.class));
+    }
+
+    @Test
+    public void searchUser_shouldReportUserAsNotFoundOnceAllSearchBasesWereSearchedSuccessfully() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=foo,dc=bar", "ou=baz,dc=bar").build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        when(connection.search(any(SearchRequest.class))).thenAnswer(invocation -> cursorReturning(ResultCodeEnum.SUCCESS));
+
+        assertThatThrownBy(() -> ldap.searchUser("bob", entry -> entry))
+                .isInstanceOf(UserNotFoundException.class);
+        verify(connection, times(2)).search(any(SearchRequest.class));
+    }
+
+    @Test
+    public void searchUser_shouldFailInsteadOfReportingUserAsNotFoundWhenASearchBaseCouldNotBeSearched() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=invalid,dc=bar", "ou=baz,dc=bar").build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        final SearchCursor noSuchObject = cursorReturning(ResultCodeEnum.NO_SUCH_OBJECT);
+        final SearchCursor noEntries = cursorReturning(ResultCodeEnum.SUCCESS);
+        when(connection.search(any(SearchRequest.class))).thenReturn(noSuchObject).thenReturn(noEntries);
+
+        assertThatThrownBy(() -> ldap.searchUser("bob", entry -> entry))
+                .isNotInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("ou=invalid,dc=bar");
+        verify(connection, times(2)).search(any(SearchRequest.class));
+    }
+
+    @Test
+    public void searchUser_shouldFindUserInSearchBaseFollowingOneThatCouldNotBeSearched() throws Exception {
+        final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
+                .withSearchBases("ou=invalid,dc=bar", "ou=baz,dc=bar").build();
+
+        final LdapConnectionTemplate ldapConnectionTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnection connection = mock(LdapConnection.class);
+        final Ldap ldap = new Ldap(ldapConfiguration, ldapConnectionTemplate);
+
+        when(ldapConnectionTemplate.execute(ArgumentMatchers.<ConnectionCallback<SearchResultDone>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<SearchResultDone>>getArgument(0).doWithConnection(connection));
+        final SearchCursor noSuchObject = cursorReturning(ResultCodeEnum.NO_SUCH_OBJECT);
+        final SearchCursor bob = cursorReturning(ResultCodeEnum.SUCCESS, new DefaultEntry("uid=bob,ou=baz,dc=bar"));
+        when(connection.search(any(SearchRequest.class))).thenReturn(noSuchObject).thenReturn(bob);
+
+        final Entry entry = ldap.searchUser("bob", e -> e);
+
+        assertThat(entry.getDn().getName()).isEqualTo("uid=bob,ou=baz,dc=bar");
+    }
+
+    private SearchCursor cursorReturning(ResultCodeEnum resultCode, Entry... entries) throws Exception {
+        final SearchCursor cursor = cursorReturning((byte[]) null, entries);
+        cursor.getSearchResultDone().getLdapResult().setResultCode(resultCode);
+        return cursor;
+    }
+
+    private SearchCursor cursorReturning(byte[] cookie, Entry... entries) throws Exception {
+        final SearchCursor cursor = mock(SearchCursor.class);
+        final Iterator<Entry> iterator = Arrays.asList(entries).iterator();
+        final Entry[] current = new Entry[1];
+        when(cursor.next()).thenAnswer(invocation -> {
+            current[0] = iterator.hasNext() ? iterator.next() : null;
+            return current[0] != null;
+        });
+        when(cursor.isEntry()).thenReturn(true);
+        when(cursor.getEntry()).thenAnswer(invocation -> current[0]);
+
+        final PagedResults pagedResults = new PagedResultsImpl();
+        pagedResults.setCookie(cookie);
+        final SearchResultDone searchResultDone = new SearchResultDoneImpl();
+        searchResultDone.addControl(pagedResults);
+        when(cursor.getSearchResultDone()).thenReturn(searchResultDone);
+        return cursor;
+    }
+
+    @Test
+    public void shouldSupportMatchingRuleInChainOnlyForActiveDirectory() throws Exception {
+        final LdapConnectionTemplate activeDirectoryTemplate = mock(LdapConnectionTemplate.class);
+        final LdapConnectionTemplate openLdapTemplate = mock(LdapConnectionTemplate.class);
+
+        when(activeDirectoryTemplate.execute(ArgumentMatchers.<ConnectionCallback<Entry>>any()))
+                .thenReturn(new DefaultEntry("", "supportedCapabilities: 1.2.840.113556.1.4.800"));
+        when(openLdapTemplate.execute(ArgumentMatchers.<ConnectionCallback<Entry>>any()))
+                .thenReturn(new DefaultEntry(""));
+
+        final Ldap activeDirectory = new Ldap(new LdapConfigurationMother.Builder().build(), activeDirectoryTemplate);
+        assertThat(activeDirectory.supportsMatchingRuleInChain()).isTrue();
+        assertThat(activeDirectory.supportsMatchingRuleInChain()).isTrue();
+        verify(activeDirectoryTemplate, times(1)).execute(ArgumentMatchers.<ConnectionCallback<Entry>>any());
+
+        assertThat(new Ldap(new LdapConfigurationMother.Builder().build(), openLdapTemplate).supportsMatchingRuleInChain()).isFalse();
+    }
+
     @Test
     public void shouldVerifyConnectionByMakingADummySearchRequest() throws Exception {
         final LdapConfiguration ldapConfiguration = new LdapConfigurationMother.Builder()
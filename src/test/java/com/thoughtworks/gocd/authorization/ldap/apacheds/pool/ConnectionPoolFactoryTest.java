@@ -22,7 +22,16 @@ import org.apache.directory.ldap.client.api.LdapConnectionPool;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
-
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.closeLdapConnectionPool;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getBindConnectionPool;
 import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getLdapConnectionPool;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -85,4 +94,99 @@ public class ConnectionPoolFactoryTest {
         assertNotNull(ldapConnectionPoolOne);
         assertNotEquals(ldapConnectionPoolOne, ldapConnectionPoolTwo);
     }
+
+    @Test
+    public void shouldReturnSameConnectionPoolWhenRequestedConcurrently() throws Exception {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://concurrent").build());
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Callable<LdapConnectionPool>> tasks = IntStream.range(0, 32)
+                    .mapToObj(i -> (Callable<LdapConnectionPool>) () -> getLdapConnectionPool(connectionConfiguration))
+                    .collect(Collectors.toList());
+
+            final List<Future<LdapConnectionPool>> futures = executorService.invokeAll(tasks);
+
+            final LdapConnectionPool expected = futures.get(0).get();
+            for (Future<LdapConnectionPool> future : futures) {
+                assertThat(future.get()).isSameAs(expected);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCloseAndRemoveConnectionPool() throws Exception {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://closed").build());
+        final LdapConnectionPool ldapConnectionPool = getLdapConnectionPool(connectionConfiguration);
+
+        closeLdapConnectionPool(connectionConfiguration);
+
+        assertThat(ldapConnectionPool.isClosed()).isTrue();
+        assertThat(getLdapConnectionPool(connectionConfiguration)).isNotSameAs(ldapConnectionPool);
+    }
+
+    @Test
+    public void shouldCreateSeparateBindConnectionPoolWithItsOwnLimits() {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://bind").build());
+
+        final LdapConnectionPool bindConnectionPool = getBindConnectionPool(connectionConfiguration);
+
+        assertThat(bindConnectionPool).isNotSameAs(getLdapConnectionPool(connectionConfiguration));
+        assertThat(bindConnectionPool).isSameAs(getBindConnectionPool(connectionConfiguration));
+        assertThat(bindConnectionPool.getMaxTotal()).isEqualTo(50);
+        assertThat(bindConnectionPool.getMaxIdle()).isEqualTo(10);
+        assertThat(bindConnectionPool.getMinEvictableIdleDuration()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(bindConnectionPool.getTestOnBorrow()).isTrue();
+    }
+
+    @Test
+    public void shouldCloseBindConnectionPoolAlongWithLdapConnectionPool() {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://bind-closed").build());
+        final LdapConnectionPool bindConnectionPool = getBindConnectionPool(connectionConfiguration);
+
+        closeLdapConnectionPool(connectionConfiguration);
+
+        assertThat(bindConnectionPool.isClosed()).isTrue();
+    }
+
+    @Test
+    public void shouldApplyPoolSettingsFromLdapConfiguration() {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder()
+                .withURL("ldap://replica")
+                .withPoolMaxTotal(20)
+                .withPoolMaxIdle(5)
+                .withPoolMinIdle(2)
+                .withPoolMaxWait(10)
+                .withPoolEvictionInterval(60)
+                .withPoolTestWhileIdle(true)
+                .build());
+
+        final LdapConnectionPool ldapConnectionPool = getLdapConnectionPool(connectionConfiguration);
+
+        assertThat(ldapConnectionPool.getMaxTotal()).isEqualTo(20);
+        assertThat(ldapConnectionPool.getMaxIdle()).isEqualTo(5);
+        assertThat(ldapConnectionPool.getMinIdle()).isEqualTo(2);
+        assertThat(ldapConnectionPool.getMaxWaitDuration()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(ldapConnectionPool.getDurationBetweenEvictionRuns()).isEqualTo(Duration.ofSeconds(60));
+        assertThat(ldapConnectionPool.getTestWhileIdle()).isTrue();
+
+        final LdapConnectionPool bindConnectionPool = getBindConnectionPool(connectionConfiguration);
+
+        assertThat(bindConnectionPool.getMaxTotal()).isEqualTo(20);
+        assertThat(bindConnectionPool.getMaxIdle()).isEqualTo(5);
+        assertThat(bindConnectionPool.getMaxWaitDuration()).isEqualTo(Duration.ofSeconds(10));
+
+        closeLdapConnectionPool(connectionConfiguration);
+    }
+
+    @Test
+    public void shouldCreateSeparatePoolsForSameServerWithDifferentPoolSettings() {
+        final ConnectionConfiguration configuration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://sized").withPoolMaxTotal(10).build());
+        final ConnectionConfiguration differentConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://sized").withPoolMaxTotal(20).build());
+
+        assertNotEquals(configuration, differentConfiguration);
+        assertNotEquals(getLdapConnectionPool(configuration), getLdapConnectionPool(differentConfiguration));
+    }
 }
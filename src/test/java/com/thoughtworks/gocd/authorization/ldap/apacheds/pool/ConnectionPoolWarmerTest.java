@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.apacheds.pool;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.apacheds.ConnectionConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolFactory.getLdapConnectionPool;
+import static com.thoughtworks.gocd.authorization.ldap.apacheds.pool.ConnectionPoolWarmer.warmUp;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConnectionPoolWarmerTest {
+
+    @Test
+    public void shouldSkipWarmUpWhenDisabled() {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://no-warm-up").build());
+
+        final CompletableFuture<Void> warmUp = warmUp(connectionConfiguration, 0);
+
+        assertThat(warmUp).isCompleted();
+    }
+
+    @Test
+    public void shouldCompleteWarmUpInBackgroundWhenServerIsUnreachable() throws Exception {
+        final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration(new LdapConfigurationMother.Builder().withURL("ldap://localhost:1").build());
+
+        final CompletableFuture<Void> warmUp = warmUp(connectionConfiguration, 2);
+
+        assertThat(warmUp.handle((result, e) -> e).get(30, TimeUnit.SECONDS)).isNotNull();
+        assertThat(getLdapConnectionPool(connectionConfiguration).getNumIdle()).isEqualTo(0);
+    }
+}
@@ -61,6 +61,22 @@ public class TrustManagerFactoryTest {
         assertThat(acceptedIssuers).contains(loadCertificate());
     }
 
+    @Test
+    public void shouldReuseTrustManagerForSameCertificate() throws Exception {
+        final TrustManagerFactory instance = TrustManagerFactory.getInstance();
+
+        final X509TrustManager trustManager = instance.getTrustManager(loadCertificate());
+
+        assertThat(instance.getTrustManager(loadCertificate())).isSameAs(trustManager);
+    }
+
+    @Test
+    public void shouldComputeSha256FingerprintOfCertificate() throws Exception {
+        assertThat(TrustManagerFactory.fingerprint(loadCertificate()))
+                .hasSize(64)
+                .isEqualTo(TrustManagerFactory.fingerprint(loadCertificate()));
+    }
+
     private X509Certificate loadCertificate() throws CertificateException {
         final CertificateFactory cf = CertificateFactory.getInstance("X.509");
         return (X509Certificate) cf.generateCertificate(TrustManagerFactory.class.getResourceAsStream("/example-cert.pem"));
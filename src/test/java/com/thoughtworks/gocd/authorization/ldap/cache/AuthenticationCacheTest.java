@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.Credentials;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthenticationCacheTest {
+    private final AuthenticationCache authenticationCache = new AuthenticationCache();
+
+    @Test
+    public void shouldReturnCachedEntryForSamePassword() throws Exception {
+        final AuthConfig authConfig = authConfig("cached", 60);
+        final Entry entry = new DefaultEntry("uid=bob,ou=users");
+
+        authenticationCache.put(authConfig, new Credentials("bob", "secret"), entry);
+
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("bob", "secret"))).isSameAs(entry);
+    }
+
+    @Test
+    public void shouldNotReturnCachedEntryForDifferentPassword() throws Exception {
+        final AuthConfig authConfig = authConfig("wrong-password", 60);
+
+        authenticationCache.put(authConfig, new Credentials("bob", "secret"), new DefaultEntry("uid=bob,ou=users"));
+
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("bob", "not-secret"))).isNull();
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("alice", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldNotCacheWhenTtlIsZero() throws Exception {
+        final AuthConfig authConfig = authConfig("disabled", 0);
+
+        authenticationCache.put(authConfig, new Credentials("bob", "secret"), new DefaultEntry("uid=bob,ou=users"));
+
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("bob", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldNotCacheBlankPasswords() throws Exception {
+        final AuthConfig authConfig = authConfig("blank-password", 60);
+
+        authenticationCache.put(authConfig, new Credentials("bob", ""), new DefaultEntry("uid=bob,ou=users"));
+
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("bob", ""))).isNull();
+    }
+
+    @Test
+    public void shouldKeepCachedEntriesSeparatePerAuthConfig() throws Exception {
+        authenticationCache.put(authConfig("first", 60), new Credentials("bob", "secret"), new DefaultEntry("uid=bob,ou=users"));
+
+        assertThat(authenticationCache.getIfPresent(authConfig("second", 60), new Credentials("bob", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldInvalidateCachedEntry() throws Exception {
+        final AuthConfig authConfig = authConfig("invalidate", 60);
+        authenticationCache.put(authConfig, new Credentials("bob", "secret"), new DefaultEntry("uid=bob,ou=users"));
+
+        authenticationCache.invalidate(authConfig, "bob");
+
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("bob", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldInvalidateCachedEntryByDn() throws Exception {
+        final AuthConfig authConfig = authConfig("invalidate-by-dn", 60);
+        authenticationCache.put(authConfig, new Credentials("bob", "secret"), new DefaultEntry("uid=bob,ou=users"));
+        authenticationCache.put(authConfig, new Credentials("alice", "secret"), new DefaultEntry("uid=alice,ou=users"));
+
+        assertThat(authenticationCache.invalidateEntry(authConfig, new Dn("UID=Bob,ou=users"))).isTrue();
+        assertThat(authenticationCache.invalidateEntry(authConfig, new Dn("uid=carol,ou=users"))).isFalse();
+
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("bob", "secret"))).isNull();
+        assertThat(authenticationCache.getIfPresent(authConfig, new Credentials("alice", "secret"))).isNotNull();
+    }
+
+    private AuthConfig authConfig(String id, int ttl) {
+        return new AuthConfig(id, new LdapConfigurationMother.Builder().withAuthenticationCacheTtl(ttl).build());
+    }
+}
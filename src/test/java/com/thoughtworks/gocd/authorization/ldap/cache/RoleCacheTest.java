@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.roleConfigWith;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoleCacheTest {
+    private final RoleCache roleCache = new RoleCache();
+    private final User user = new User("bob", "Bob", "bob@example.com");
+
+    @Test
+    public void shouldReuseResolvedRolesForSameUserAndRoleConfigs() {
+        final AuthConfig authConfig = authConfig("role-cache", 60);
+        final List<RoleConfig> roleConfigs = List.of(roleConfigWith("admin", "role-cache"));
+        final AtomicInteger resolutions = new AtomicInteger();
+
+        final Set<String> roles = roleCache.get(authConfig, user, roleConfigs, () -> resolve(resolutions, "admin"));
+        final Set<String> cachedRoles = roleCache.get(authConfig, user, roleConfigs, () -> resolve(resolutions, "admin"));
+
+        assertThat(roles).containsExactly("admin");
+        assertThat(cachedRoles).containsExactly("admin");
+        assertThat(resolutions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveRolesAgainWhenRoleConfigsChange() {
+        final AuthConfig authConfig = authConfig("role-cache-changed", 60);
+        final AtomicInteger resolutions = new AtomicInteger();
+
+        roleCache.get(authConfig, user, List.of(roleConfigWith("admin", "role-cache-changed")), () -> resolve(resolutions, "admin"));
+        final Set<String> roles = roleCache.get(authConfig, user, List.of(roleConfigWith("admin", "role-cache-changed", "(member={dn})")), () -> resolve(resolutions, "view"));
+
+        assertThat(roles).containsExactly("view");
+        assertThat(resolutions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotCacheWhenTtlIsZero() {
+        final AuthConfig authConfig = authConfig("role-cache-disabled", 0);
+        final List<RoleConfig> roleConfigs = List.of(roleConfigWith("admin", "role-cache-disabled"));
+        final AtomicInteger resolutions = new AtomicInteger();
+
+        roleCache.get(authConfig, user, roleConfigs, () -> resolve(resolutions, "admin"));
+        roleCache.get(authConfig, user, roleConfigs, () -> resolve(resolutions, "admin"));
+
+        assertThat(resolutions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldResolveRolesAgainOnceUserIsInvalidated() throws Exception {
+        final AuthConfig authConfig = authConfig("role-cache-invalidated", 60);
+        final User bob = new User("bob", "Bob", "bob@example.com", new DefaultEntry("uid=bob,ou=users"));
+        final List<RoleConfig> roleConfigs = List.of(roleConfigWith("admin", "role-cache-invalidated"));
+        final AtomicInteger resolutions = new AtomicInteger();
+
+        roleCache.get(authConfig, bob, roleConfigs, () -> resolve(resolutions, "admin"));
+        assertThat(roleCache.invalidateUser(authConfig, new Dn("uid=alice,ou=users"))).isFalse();
+        assertThat(roleCache.invalidateUser(authConfig, new Dn("uid=bob,ou=users"))).isTrue();
+        roleCache.get(authConfig, bob, roleConfigs, () -> resolve(resolutions, "admin"));
+
+        assertThat(resolutions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotCacheRolesWhichCouldNotBeResolvedCompletely() {
+        final AuthConfig authConfig = authConfig("role-cache-incomplete", 60);
+        final List<RoleConfig> roleConfigs = List.of(roleConfigWith("admin", "role-cache-incomplete"));
+        final AtomicInteger resolutions = new AtomicInteger();
+
+        final Set<String> roles = roleCache.get(authConfig, user, roleConfigs, () -> {
+            resolutions.incrementAndGet();
+            return new RoleCache.ResolvedRoles(Set.of(), false);
+        });
+        final Set<String> resolvedAgain = roleCache.get(authConfig, user, roleConfigs, () -> resolve(resolutions, "admin"));
+
+        assertThat(roles).isEmpty();
+        assertThat(resolvedAgain).containsExactly("admin");
+        assertThat(resolutions.get()).isEqualTo(2);
+    }
+
+    private RoleCache.ResolvedRoles resolve(AtomicInteger resolutions, String role) {
+        resolutions.incrementAndGet();
+        return new RoleCache.ResolvedRoles(Set.of(role), true);
+    }
+
+    private AuthConfig authConfig(String id, int ttl) {
+        return new AuthConfig(id, new LdapConfigurationMother.Builder().withRoleCacheTtl(ttl).build());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnknownUserCacheTest {
+    private final UnknownUserCache unknownUserCache = new UnknownUserCache();
+
+    @Test
+    public void shouldRememberUnknownUsers() {
+        final AuthConfig authConfig = authConfig("unknown-user-cache", 60);
+
+        unknownUserCache.markUnknown(authConfig, "bob");
+
+        assertThat(unknownUserCache.isUnknown(authConfig, "bob")).isTrue();
+        assertThat(unknownUserCache.isUnknown(authConfig, "alice")).isFalse();
+    }
+
+    @Test
+    public void shouldNotRememberUnknownUsersWhenTtlIsZero() {
+        final AuthConfig authConfig = authConfig("unknown-user-cache-disabled", 0);
+
+        unknownUserCache.markUnknown(authConfig, "bob");
+
+        assertThat(unknownUserCache.isUnknown(authConfig, "bob")).isFalse();
+    }
+
+    @Test
+    public void shouldKeepUnknownUsersSeparatePerAuthConfig() {
+        unknownUserCache.markUnknown(authConfig("unknown-user-cache-first", 60), "bob");
+
+        assertThat(unknownUserCache.isUnknown(authConfig("unknown-user-cache-second", 60), "bob")).isFalse();
+    }
+
+    @Test
+    public void shouldForgetAllUnknownUsers() {
+        final AuthConfig authConfig = authConfig("unknown-user-cache-invalidate", 60);
+        unknownUserCache.markUnknown(authConfig, "bob");
+
+        unknownUserCache.invalidateAll(authConfig);
+
+        assertThat(unknownUserCache.isUnknown(authConfig, "bob")).isFalse();
+    }
+
+    private AuthConfig authConfig(String id, int ttl) {
+        return new AuthConfig(id, new LdapConfigurationMother.Builder().withUnknownUserCacheTtl(ttl).build());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.cache;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.User;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserCacheTest {
+    private final UserCache userCache = new UserCache();
+
+    @Test
+    public void shouldReturnCachedUser() {
+        final AuthConfig authConfig = authConfig("user-cache", 60);
+        final User user = new User("bob", "Bob", "bob@example.com");
+
+        userCache.put(authConfig, "bob", user);
+
+        assertThat(userCache.getIfPresent(authConfig, "bob")).isSameAs(user);
+        assertThat(userCache.getIfPresent(authConfig, "alice")).isNull();
+    }
+
+    @Test
+    public void shouldRecordHitsAndMisses() {
+        final AuthConfig authConfig = authConfig("user-cache-stats", 60);
+        userCache.put(authConfig, "bob", new User("bob", "Bob", "bob@example.com"));
+
+        userCache.getIfPresent(authConfig, "bob");
+        userCache.getIfPresent(authConfig, "bob");
+        userCache.getIfPresent(authConfig, "alice");
+
+        assertThat(userCache.stats(authConfig).hitCount()).isEqualTo(2);
+        assertThat(userCache.stats(authConfig).missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheWhenTtlIsZero() {
+        final AuthConfig authConfig = authConfig("user-cache-disabled", 0);
+
+        userCache.put(authConfig, "bob", new User("bob", "Bob", "bob@example.com"));
+
+        assertThat(userCache.getIfPresent(authConfig, "bob")).isNull();
+        assertThat(userCache.stats(authConfig).requestCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldInvalidateUsersReadFromChangedEntry() throws Exception {
+        final AuthConfig authConfig = authConfig("user-cache-entry", 60);
+        userCache.put(authConfig, "bob", new User("bob", "Bob", "bob@example.com", new DefaultEntry("uid=bob,ou=users")));
+        userCache.put(authConfig, "alice", new User("alice", "Alice", "alice@example.com", new DefaultEntry("uid=alice,ou=users")));
+
+        assertThat(userCache.invalidateEntry(authConfig, new Dn("uid=bob,ou=users"))).isTrue();
+
+        assertThat(userCache.getIfPresent(authConfig, "bob")).isNull();
+        assertThat(userCache.getIfPresent(authConfig, "alice")).isNotNull();
+    }
+
+    private AuthConfig authConfig(String id, int ttl) {
+        return new AuthConfig(id, new LdapConfigurationMother.Builder().withUserCacheTtl(ttl).build());
+    }
+}
@@ -56,7 +56,7 @@ public class GetUserRolesExecutorTest {
 
         GoPluginApiResponse response = new GetUserRolesExecutor(this.pluginRequest, ldapAuthenticator, ldapAuthorizer).execute();
 
-        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig());
+        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig(), request.getRoleConfigs());
         JSONAssert.assertEquals("[]", response.responseBody(), true);
     }
 
@@ -72,7 +72,7 @@ public class GetUserRolesExecutorTest {
         final AuthenticationResponse authenticationResponse = new AuthenticationResponse(user, request.getAuthConfig());
 
         when(this.pluginRequest.requestBody()).thenReturn(requestBody);
-        when(ldapAuthenticator.searchUserWithAuthConfig("username", request.getAuthConfig())).thenReturn(authenticationResponse);
+        when(ldapAuthenticator.searchUserWithAuthConfig("username", request.getAuthConfig(), request.getRoleConfigs())).thenReturn(authenticationResponse);
 
         new GetUserRolesExecutor(this.pluginRequest, ldapAuthenticator, ldapAuthorizer).execute();
 
@@ -91,7 +91,7 @@ public class GetUserRolesExecutorTest {
         final AuthenticationResponse authenticationResponse = new AuthenticationResponse(user, request.getAuthConfig());
 
         when(pluginRequest.requestBody()).thenReturn(requestBody);
-        when(ldapAuthenticator.searchUserWithAuthConfig("username", request.getAuthConfig())).thenReturn(authenticationResponse);
+        when(ldapAuthenticator.searchUserWithAuthConfig("username", request.getAuthConfig(), request.getRoleConfigs())).thenReturn(authenticationResponse);
         when(ldapAuthorizer.authorize(user, request.getAuthConfig(), request.getRoleConfigs())).thenReturn(Collections.singleton("admin"));
 
         GoPluginApiResponse response = new GetUserRolesExecutor(pluginRequest, ldapAuthenticator, ldapAuthorizer).execute();
@@ -25,6 +25,8 @@ import com.thoughtworks.gocd.authorization.ldap.request.IsValidUserRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+
 import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.getRequestBodyMapForIsUserValid;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -49,7 +51,7 @@ public class IsValidUserExecutorTest {
 
         new IsValidUserExecutor(this.pluginRequest, ldapAuthenticator).execute();
 
-        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig());
+        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig(), Collections.emptyList());
     }
 
     @Test
@@ -59,12 +61,12 @@ public class IsValidUserExecutorTest {
 
         when(this.pluginRequest.requestBody()).thenReturn(requestBody);
         final User user = new User("bford", "displayName", "mail");
-        when(ldapAuthenticator.searchUserWithAuthConfig("bford", request.getAuthConfig())).thenReturn(new AuthenticationResponse(user, request.getAuthConfig()));
+        when(ldapAuthenticator.searchUserWithAuthConfig("bford", request.getAuthConfig(), Collections.emptyList())).thenReturn(new AuthenticationResponse(user, request.getAuthConfig()));
 
         GoPluginApiResponse response = new IsValidUserExecutor(this.pluginRequest, ldapAuthenticator).execute();
 
         assertThat(response.responseCode()).isEqualTo(200);
-        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig());
+        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig(), Collections.emptyList());
     }
 
     @Test
@@ -73,11 +75,11 @@ public class IsValidUserExecutorTest {
         final IsValidUserRequest request = IsValidUserRequest.fromJSON(requestBody);
 
         when(this.pluginRequest.requestBody()).thenReturn(requestBody);
-        when(ldapAuthenticator.searchUserWithAuthConfig("bford", request.getAuthConfig())).thenReturn(null);
+        when(ldapAuthenticator.searchUserWithAuthConfig("bford", request.getAuthConfig(), Collections.emptyList())).thenReturn(null);
 
         GoPluginApiResponse response = new IsValidUserExecutor(this.pluginRequest, ldapAuthenticator).execute();
 
         assertThat(response.responseCode()).isEqualTo(500);
-        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig());
+        verify(ldapAuthenticator).searchUserWithAuthConfig("bford", request.getAuthConfig(), Collections.emptyList());
     }
 }
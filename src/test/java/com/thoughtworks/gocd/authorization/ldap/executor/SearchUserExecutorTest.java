@@ -18,10 +18,12 @@ package com.thoughtworks.gocd.authorization.ldap.executor;
 
 import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
 import com.thoughtworks.gocd.authorization.ldap.RequestBodyMother;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.Ldap;
 import com.thoughtworks.gocd.authorization.ldap.apacheds.LdapFactory;
 import com.thoughtworks.gocd.authorization.ldap.mapper.UserMapper;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
 import com.thoughtworks.gocd.authorization.ldap.model.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,6 +32,9 @@ import org.mockito.ArgumentCaptor;
 import org.skyscreamer.jsonassert.JSONAssert;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.forSearchWithMultipleAuthConfigs;
 import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.forSearchWithSearchFilter;
@@ -49,7 +54,7 @@ public class SearchUserExecutorTest {
         ldapFactory = mock(LdapFactory.class);
         ldap = mock(Ldap.class);
 
-        when(ldapFactory.ldapForConfiguration(any(LdapConfiguration.class))).thenReturn(ldap);
+        when(ldapFactory.ldapForAuthConfig(any(AuthConfig.class))).thenReturn(ldap);
     }
 
     @Test
@@ -62,7 +67,7 @@ public class SearchUserExecutorTest {
 
         ArgumentCaptor<String> filterArgumentCaptor = ArgumentCaptor.forClass(String.class);
 
-        verify(ldap).search(filterArgumentCaptor.capture(), eq(new String[]{"some-text"}), any(UserMapper.class), eq(100));
+        verify(ldap).search(filterArgumentCaptor.capture(), eq(new String[]{"some-text"}), any(String[].class), any(UserMapper.class), eq(100));
 
         final String expectedFilter = "(|(sAMAccountName=*{0}*)(uid=*{0}*)(cn=*{0}*)(mail=*{0}*)(otherMailbox=*{0}*))";
         assertThat(filterArgumentCaptor.getValue()).isEqualTo(expectedFilter);
@@ -76,7 +81,7 @@ public class SearchUserExecutorTest {
         new SearchUserExecutor(request, ldapFactory).execute();
 
         ArgumentCaptor<String> filterArgumentCaptor = ArgumentCaptor.forClass(String.class);
-        verify(ldap).search(filterArgumentCaptor.capture(), eq(new String[]{"some-text"}), any(UserMapper.class), eq(100));
+        verify(ldap).search(filterArgumentCaptor.capture(), eq(new String[]{"some-text"}), any(String[].class), any(UserMapper.class), eq(100));
 
         assertThat(filterArgumentCaptor.getValue()).isEqualTo("(cn={0})");
     }
@@ -87,7 +92,7 @@ public class SearchUserExecutorTest {
         when(request.requestBody()).thenReturn(searchRequestBody);
 
         final User user = new User("username", "displayName", "mail");
-        when(ldap.search(any(String.class), eq(new String[]{"some-text"}), any(UserMapper.class), anyInt())).thenReturn(Arrays.asList(user));
+        when(ldap.search(any(String.class), eq(new String[]{"some-text"}), any(String[].class), any(UserMapper.class), anyInt())).thenReturn(Arrays.asList(user));
 
         final GoPluginApiResponse response = new SearchUserExecutor(request, ldapFactory).execute();
 
@@ -111,7 +116,7 @@ public class SearchUserExecutorTest {
         final User userFromAuthConfig1 = new User("username-from-auth-config-1", "displayName-1", "mail-1");
         final User userFromAuthConfig2 = new User("username-from-auth-config-2", "displayName-2", "mail-2");
 
-        when(ldap.search(any(String.class), eq(new String[]{"some-text"}), any(UserMapper.class), anyInt())).thenReturn(Arrays.asList(userFromAuthConfig1)).thenReturn(Arrays.asList(userFromAuthConfig2));
+        when(ldap.search(any(String.class), eq(new String[]{"some-text"}), any(String[].class), any(UserMapper.class), anyInt())).thenReturn(Arrays.asList(userFromAuthConfig1)).thenReturn(Arrays.asList(userFromAuthConfig2));
 
         final GoPluginApiResponse response = new SearchUserExecutor(request, ldapFactory).execute();
 
@@ -139,7 +144,7 @@ public class SearchUserExecutorTest {
 
         final User userFromAuthConfig2 = new User("username-from-auth-config-2", "displayName-2", "mail-2");
 
-        when(ldap.search(any(String.class), eq(new String[]{"some-text"}), any(UserMapper.class), anyInt())).thenThrow(new RuntimeException()).thenReturn(Arrays.asList(userFromAuthConfig2));
+        when(ldap.search(any(String.class), eq(new String[]{"some-text"}), any(String[].class), any(UserMapper.class), anyInt())).thenThrow(new RuntimeException()).thenReturn(Arrays.asList(userFromAuthConfig2));
 
         final GoPluginApiResponse response = new SearchUserExecutor(request, ldapFactory).execute();
 
@@ -154,4 +159,24 @@ public class SearchUserExecutorTest {
         assertThat(response.responseCode()).isEqualTo(200);
         JSONAssert.assertEquals(expectedJSON, response.responseBody(), true);
     }
+
+    @Test
+    public void shouldStreamUsersPageByPageWhenSearchPageSizeIsConfigured() {
+        final LdapConfiguration configuration = new LdapConfigurationMother.Builder()
+                .withSearchPageSize(50)
+                .withSearchResultLimit(500)
+                .build();
+        final User user = new User("username", "displayName", "mail");
+        when(request.requestBody()).thenReturn(RequestBodyMother.forSearch("some-text"));
+
+        when(ldap.searchPaged(any(String.class), eq(new String[]{"some-text"}), any(String[].class), any(UserMapper.class), eq(500), eq(50), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<User>>getArgument(6).accept(user);
+            return 1;
+        });
+
+        final Set<User> users = new SearchUserExecutor(request, ldapFactory).searchUsers("some-text", Collections.singletonList(new AuthConfig("ldap", configuration)));
+
+        assertThat(users).containsExactly(user);
+        verify(ldap, never()).search(any(String.class), any(String[].class), any(String[].class), any(UserMapper.class), anyInt());
+    }
 }
@@ -23,6 +23,7 @@ import com.thoughtworks.gocd.authorization.ldap.LdapAuthorizer;
 import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.AuthenticationResponse;
 import com.thoughtworks.gocd.authorization.ldap.model.Credentials;
+import com.thoughtworks.gocd.authorization.ldap.model.RoleConfig;
 import com.thoughtworks.gocd.authorization.ldap.model.User;
 import com.thoughtworks.gocd.authorization.ldap.request.AuthenticationRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -58,7 +59,7 @@ public class UserAuthenticationExecutorTest {
 
         new UserAuthenticationExecutor(request, ldapAuthenticator, ldapAuthorizer).execute();
 
-        verify(ldapAuthenticator).authenticate(new Credentials("bford", "bob"), authenticationRequest.getAuthConfigs());
+        verify(ldapAuthenticator).authenticate(new Credentials("bford", "bob"), authenticationRequest.getAuthConfigs(), authenticationRequest.getRoleConfigs());
     }
 
     @Test
@@ -73,7 +74,7 @@ public class UserAuthenticationExecutorTest {
         final AuthenticationResponse authenticationResponse = new AuthenticationResponse(user, authenticationRequest.getAuthConfigs().get(0));
 
         when(request.requestBody()).thenReturn(requestBody);
-        when(ldapAuthenticator.authenticate(any(Credentials.class), ArgumentMatchers.<List<AuthConfig>>any())).thenReturn(authenticationResponse);
+        when(ldapAuthenticator.authenticate(any(Credentials.class), ArgumentMatchers.<List<AuthConfig>>any(), ArgumentMatchers.<List<RoleConfig>>any())).thenReturn(authenticationResponse);
 
         new UserAuthenticationExecutor(request, ldapAuthenticator, ldapAuthorizer).execute();
 
@@ -92,7 +93,7 @@ public class UserAuthenticationExecutorTest {
         final AuthenticationResponse authenticationResponse = new AuthenticationResponse(user, authenticationRequest.getAuthConfigs().get(0));
 
         when(request.requestBody()).thenReturn(requestBody);
-        when(ldapAuthenticator.authenticate(any(Credentials.class), ArgumentMatchers.<List<AuthConfig>>any())).thenReturn(authenticationResponse);
+        when(ldapAuthenticator.authenticate(any(Credentials.class), ArgumentMatchers.<List<AuthConfig>>any(), ArgumentMatchers.<List<RoleConfig>>any())).thenReturn(authenticationResponse);
         when(ldapAuthorizer.authorize(user, authenticationRequest.getAuthConfigs().get(0), authenticationRequest.getRoleConfigs())).thenReturn(Collections.singleton("admin"));
 
         final GoPluginApiResponse response = new UserAuthenticationExecutor(request, ldapAuthenticator, ldapAuthorizer).execute();
@@ -80,6 +80,20 @@ public class VerifyConnectionRequestExecutorTest {
         JSONAssert.assertEquals(expectedResponse, response.responseBody(), true);
     }
 
+    @Test
+    public void execute_shouldCloseTheLdapInstanceUsedToVerifyConnection() throws Exception {
+        DefaultGoPluginApiRequest request = new DefaultGoPluginApiRequest(null, null, null);
+        request.setRequestBody(vaildConfig());
+
+        when(ldapFactory.ldapForConfiguration(any(LdapConfiguration.class))).thenReturn(ldap);
+        doThrow(new RuntimeException("Cannot verify connection")).when(ldap).verifyConnection();
+
+        new VerifyConnectionRequestExecutor(request, ldapFactory).execute();
+
+        verify(ldap).close();
+        verify(ldapFactory, never()).ldapForAuthConfig(any());
+    }
+
     private String vaildConfig() {
         return "{\n" +
                 "    \"ManagerDN\": \"uid=admin,ou=system\",\n" +
@@ -25,6 +25,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -71,6 +72,42 @@ public class RoleMapperTest {
         assertThat(true).isEqualTo(roles.isEmpty());
     }
 
+    @Test
+    public void shouldMapAllRolesMatchingAnyGroupOfTheUser() throws Exception {
+        final RoleConfig admins = roleConfig("admins", getRoleProfile("memberOf", "ou=abc,ou=area51,dc=example,dc=com\nou=other,dc=example,dc=com", null));
+        final RoleConfig operators = roleConfig("operators", getRoleProfile("memberOf", "ou=xyz,ou=area51,dc=example,dc=com", null));
+        final RoleConfig viewers = roleConfig("viewers", getRoleProfile("memberOf", "ou=xyz,ou=area51,dc=example,dc=com", null));
+        final RoleConfig administrators = roleConfig("administrators", getRoleProfile("administrativeRole", "admins", null));
+        final RoleConfig others = roleConfig("others", getRoleProfile("memberOf", "ou=other,dc=example,dc=com", null));
+
+        Set<String> roles = roleMapper.map(entry, List.of(admins, operators, viewers, administrators, others));
+
+        assertThat(roles).containsExactlyInAnyOrder("admins", "operators", "viewers", "administrators");
+    }
+
+    @Test
+    public void shouldIgnoreRoleConfigsWithoutGroupMembershipAttributes() throws Exception {
+        final RoleConfig filterOnly = roleConfig("filter-only", getRoleProfile(null, null, "(member={dn})"));
+
+        assertThat(roleMapper.map(entry, List.of(filterOnly))).isEmpty();
+    }
+
+    @Test
+    public void shouldMatchGroupIdentifiersExactlyUnlessNormalized() throws Exception {
+        final RoleConfiguration exact = getRoleProfile("memberOf", "OU=ABC, OU=Area51, DC=example, DC=com", null);
+        final RoleConfiguration normalized = GSON.fromJson("{\"UserGroupMembershipAttribute\": \"memberOf\", \"GroupIdentifiers\": \"OU=ABC, OU=Area51, DC=example, DC=com\", \"NormalizeGroupIdentifiers\": \"true\"}", RoleConfiguration.class);
+
+        assertThat(roleMapper.map(entry, List.of(roleConfig("exact", exact)))).isEmpty();
+        assertThat(roleMapper.map(entry, List.of(roleConfig("normalized", normalized)))).containsExactly("normalized");
+    }
+
+    private RoleConfig roleConfig(String name, RoleConfiguration roleConfiguration) {
+        final RoleConfig roleConfig = mock(RoleConfig.class);
+        when(roleConfig.getName()).thenReturn(name);
+        when(roleConfig.getRoleConfiguration()).thenReturn(roleConfiguration);
+        return roleConfig;
+    }
+
     private RoleConfiguration getRoleProfile(String attName, String attValue, String groupFilter) {
         Map<String, String> configuration = new HashMap<>();
         configuration.put("UserGroupMembershipAttribute", attName);
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.mapper;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.AuthConfig;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.thoughtworks.gocd.authorization.ldap.RequestBodyMother.roleConfigWith;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserAttributesTest {
+    private final LdapConfiguration configuration = new LdapConfigurationMother.Builder()
+            .withUserNameAttribute("sAMAccountName")
+            .build();
+
+    @Test
+    public void shouldRequestAttributesUsedToMapUser() {
+        assertThat(UserAttributes.forUserMapping(configuration)).containsExactly("cn", "mail", "sAMAccountName");
+    }
+
+    @Test
+    public void shouldRequestMembershipAttributesAndFilterPlaceholdersOfRoleConfigsForAuthConfig() {
+        final AuthConfig authConfig = new AuthConfig("ldap", configuration);
+
+        final String[] attributes = UserAttributes.forAuthConfig(authConfig, Arrays.asList(
+                roleConfigWith("admin", "ldap", "(&(member={dn})(cn={sAMAccountName}))"),
+                roleConfigWith("view", "ldap", "(memberUid={uid})"),
+                roleConfigWith("deploy", "another_ldap", "(owner={employeeNumber})")));
+
+        assertThat(attributes).containsExactly("cn", "mail", "memberOf", "sAMAccountName", "uid");
+    }
+
+    @Test
+    public void shouldRequestOnlyUserMappingAttributesWithoutRoleConfigs() {
+        assertThat(UserAttributes.forAuthConfig(new AuthConfig("ldap", configuration), Collections.emptyList()))
+                .containsExactly("cn", "mail", "sAMAccountName");
+    }
+
+    @Test
+    public void shouldRequestAllAttributesWhenRoleConfigsAreUnknown() {
+        assertThat(UserAttributes.forAuthConfig(new AuthConfig("ldap", configuration), null)).containsExactly("*");
+    }
+}
@@ -18,6 +18,8 @@ package com.thoughtworks.gocd.authorization.ldap.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,6 +65,46 @@ public class LdapConfigurationTest {
         assertThat(ldapConfiguration.getUserSearchFilter()).isEqualTo("(|(sAMAccountName=*{0}*)(uid=*{0}*)(cn=*{0}*)(mail=*{0}*)(otherMailbox=*{0}*))");
         assertThat(ldapConfiguration.getSearchTimeout()).isEqualTo(5);
         assertFalse(ldapConfiguration.startTLS());
+        assertThat(ldapConfiguration.getPoolMaxTotal()).isEqualTo(250);
+        assertThat(ldapConfiguration.getPoolMaxIdle()).isEqualTo(50);
+        assertThat(ldapConfiguration.getPoolMinIdle()).isEqualTo(0);
+        assertThat(ldapConfiguration.getPoolMaxWait()).isEqualTo(-1);
+        assertThat(ldapConfiguration.getPoolEvictionInterval()).isEqualTo(-1);
+        assertFalse(ldapConfiguration.poolTestWhileIdle());
+    }
+
+    @Test
+    public void shouldDeserializePoolSettings() throws Exception {
+        String json = "{\n" +
+                "  \"PoolMaxTotal\": \"20\",\n" +
+                "  \"PoolMaxIdle\": \"5\",\n" +
+                "  \"PoolMinIdle\": \"2\",\n" +
+                "  \"PoolMaxWait\": \"10\",\n" +
+                "  \"PoolEvictionInterval\": \"60\",\n" +
+                "  \"PoolTestWhileIdle\": \"true\"\n" +
+                "}";
+
+        LdapConfiguration ldapConfiguration = LdapConfiguration.fromJSON(json);
+
+        assertThat(ldapConfiguration.getPoolMaxTotal()).isEqualTo(20);
+        assertThat(ldapConfiguration.getPoolMaxIdle()).isEqualTo(5);
+        assertThat(ldapConfiguration.getPoolMinIdle()).isEqualTo(2);
+        assertThat(ldapConfiguration.getPoolMaxWait()).isEqualTo(10);
+        assertThat(ldapConfiguration.getPoolEvictionInterval()).isEqualTo(60);
+        assertTrue(ldapConfiguration.poolTestWhileIdle());
+    }
+
+    @Test
+    public void shouldValidatePoolSettingsAreNumbers() throws Exception {
+        final ValidationResult validationResult = LdapConfiguration.validate(Map.of(
+                "Url", "ldap://localhost",
+                "SearchBases", "ou=system",
+                "UserLoginFilter", "uid={0}",
+                "UserNameAttribute", "uid",
+                "PoolMaxTotal", "many"
+        ));
+
+        assertThat(validationResult.allErrors()).containsExactly(new ValidationError("PoolMaxTotal", "PoolMaxTotal must be positive decimal."));
     }
 
     @Test
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DnNormalizerTest {
+
+    @Test
+    public void shouldIgnoreCaseAndWhitespaceAroundSeparators() {
+        assertThat(DnNormalizer.normalize("CN=Devs, OU=Groups,  DC=example,DC=com"))
+                .isEqualTo(DnNormalizer.normalize("cn=devs,ou=groups,dc=example,dc=com"));
+    }
+
+    @Test
+    public void shouldKeepDistinctDnsDistinct() {
+        assertThat(DnNormalizer.normalize("cn=devs,ou=groups,dc=example,dc=com"))
+                .isNotEqualTo(DnNormalizer.normalize("cn=ops,ou=groups,dc=example,dc=com"));
+    }
+
+    @Test
+    public void shouldLowercaseValuesWhichAreNotDns() {
+        assertThat(DnNormalizer.normalize("GoAdmins")).isEqualTo("goadmins");
+    }
+}
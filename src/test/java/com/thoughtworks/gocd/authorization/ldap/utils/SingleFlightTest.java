@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    public void shouldShareOneComputationBetweenConcurrentCallersOfTheSameKey() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger computations = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("bford", () -> {
+                    computations.incrementAndGet();
+                    awaitQuietly(release);
+                    return "Bob Ford";
+                })));
+            }
+            while (computations.get() == 0) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, SECONDS)).isEqualTo("Bob Ford");
+            }
+            assertThat(computations.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldComputeAgainOnceThePreviousComputationCompleted() {
+        final AtomicInteger computations = new AtomicInteger();
+
+        singleFlight.execute("bford", () -> String.valueOf(computations.incrementAndGet()));
+        singleFlight.execute("bford", () -> String.valueOf(computations.incrementAndGet()));
+
+        assertThat(computations.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotShareComputationsOfDifferentKeys() {
+        assertThat(singleFlight.execute("bford", () -> "Bob Ford")).isEqualTo("Bob Ford");
+        assertThat(singleFlight.execute("sbanks", () -> "Sarah Banks")).isEqualTo("Sarah Banks");
+    }
+
+    @Test
+    public void shouldPropagateFailureToTheCaller() {
+        assertThatThrownBy(() -> singleFlight.execute("bford", () -> {
+            throw new IllegalStateException("server down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("server down");
+
+        assertThat(singleFlight.execute("bford", () -> "Bob Ford")).isEqualTo("Bob Ford");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
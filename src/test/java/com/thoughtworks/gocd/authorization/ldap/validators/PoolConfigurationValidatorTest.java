@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thoughtworks.gocd.authorization.ldap.validators;
+
+import com.thoughtworks.gocd.authorization.ldap.LdapConfigurationMother;
+import com.thoughtworks.gocd.authorization.ldap.model.LdapConfiguration;
+import com.thoughtworks.gocd.authorization.ldap.model.ValidationError;
+import com.thoughtworks.gocd.authorization.ldap.model.ValidationResult;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class PoolConfigurationValidatorTest {
+
+    @Test
+    public void shouldBeValidWithDefaultPoolSettings() throws Exception {
+        final ValidationResult validationResult = new PoolConfigurationValidator().validate(new LdapConfigurationMother.Builder().build());
+
+        assertFalse(validationResult.hasErrors());
+    }
+
+    @Test
+    public void shouldEnsureMaxTotalIsGreaterThanZero() throws Exception {
+        final LdapConfiguration configuration = new LdapConfigurationMother.Builder()
+                .withPoolMaxTotal(0)
+                .build();
+
+        final ValidationResult validationResult = new PoolConfigurationValidator().validate(configuration);
+
+        assertThat(validationResult.allErrors()).containsExactly(new ValidationError("PoolMaxTotal", "PoolMaxTotal must be greater than zero."));
+    }
+
+    @Test
+    public void shouldEnsureIdleLimitsDoNotExceedMaxTotal() throws Exception {
+        final LdapConfiguration configuration = new LdapConfigurationMother.Builder()
+                .withPoolMaxTotal(10)
+                .withPoolMaxIdle(20)
+                .withPoolMinIdle(30)
+                .build();
+
+        final ValidationResult validationResult = new PoolConfigurationValidator().validate(configuration);
+
+        assertThat(validationResult.allErrors()).containsExactly(
+                new ValidationError("PoolMaxIdle", "PoolMaxIdle must not be greater than PoolMaxTotal."),
+                new ValidationError("PoolMinIdle", "PoolMinIdle must not be greater than PoolMaxIdle.")
+        );
+    }
+}
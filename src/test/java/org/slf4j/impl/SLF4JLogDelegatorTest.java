@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.slf4j.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SLF4JLogDelegatorTest {
+
+    @Test
+    public void shouldOnlyEnableLevelsFromThresholdUp() {
+        final SLF4JLogDelegator logger = new SLF4JLogDelegator(SLF4JLogDelegator.LogLevel.INFO);
+
+        assertThat(logger.isTraceEnabled()).isFalse();
+        assertThat(logger.isDebugEnabled()).isFalse();
+        assertThat(logger.isInfoEnabled()).isTrue();
+        assertThat(logger.isWarnEnabled()).isTrue();
+        assertThat(logger.isErrorEnabled()).isTrue();
+    }
+
+    @Test
+    public void shouldNotFormatMessagesBelowThreshold() {
+        final AtomicInteger formatted = new AtomicInteger();
+        final Object argument = new Object() {
+            @Override
+            public String toString() {
+                return String.valueOf(formatted.incrementAndGet());
+            }
+        };
+        final SLF4JLogDelegator logger = new SLF4JLogDelegator(SLF4JLogDelegator.LogLevel.INFO);
+
+        logger.debug("Argument {}", argument);
+        logger.trace("Arguments {} {} {}", argument, argument, argument);
+        assertThat(formatted.get()).isEqualTo(0);
+
+        logger.info("Argument {}", argument);
+        assertThat(formatted.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReadLogLevelLikeGoCD() {
+        assertThat(SLF4JLogDelegator.LogLevel.fromName(null)).isEqualTo(SLF4JLogDelegator.LogLevel.INFO);
+        assertThat(SLF4JLogDelegator.LogLevel.fromName("debug")).isEqualTo(SLF4JLogDelegator.LogLevel.DEBUG);
+        assertThat(SLF4JLogDelegator.LogLevel.fromName(" WARN ")).isEqualTo(SLF4JLogDelegator.LogLevel.WARN);
+        assertThat(SLF4JLogDelegator.LogLevel.fromName("all")).isEqualTo(SLF4JLogDelegator.LogLevel.TRACE);
+        assertThat(SLF4JLogDelegator.LogLevel.fromName("off")).isEqualTo(SLF4JLogDelegator.LogLevel.OFF);
+        assertThat(SLF4JLogDelegator.LogLevel.fromName("verbose")).isEqualTo(SLF4JLogDelegator.LogLevel.DEBUG);
+    }
+}